@@ -0,0 +1,119 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package benchmarks;
+
+import api.ReturnDecomposition;
+import applications.fibonacci.SumIntegers;
+import applications.fibonacci.TaskFibonacci;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import system.Return;
+import system.Task;
+
+/**
+ * JMH microbenchmarks of the framework's hot paths: 
+ * setting the inputs of a compose task, and setting the ids of a decomposition.
+ * @author Peter Cappello
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class FrameworkBenchmarks 
+{
+    static final private int NUM_ARGS = 4;
+    static final private Integer ONE = 1;
+    
+    /**
+     * Each thread has its own compose task: resetting one that other threads 
+     * may be setting the inputs of would race.
+     */
+    @State( Scope.Thread )
+    public static class Compose
+    {
+        final private SumIntegers compose = new SumIntegers();
+    }
+    
+    /**
+     * The life of a compose task's inputs: size them, then set each; the last readies it.
+     */
+    @Benchmark
+    @Threads( 4 )
+    public boolean composeArgs( final Compose state )
+    {
+        final SumIntegers compose = state.compose;
+        compose.numArgs( NUM_ARGS );
+        boolean isLast = false;
+        for ( int argNum = 0; argNum < NUM_ARGS; argNum++ )
+        {
+            isLast = compose.arg( argNum, ONE );
+        }
+        return isLast;
+    }
+    
+    @State( Scope.Thread )
+    public static class Decomposition
+    {
+        @Param( { "2", "16" } )
+        public int numTasks;
+        
+        private ReturnDecomposition decomposition;
+        private Task parentTask;
+        
+        @Setup
+        public void setup()
+        {
+            final List<Task> tasks = new ArrayList<>( numTasks );
+            for ( int i = 0; i < numTasks; i++ )
+            {
+                tasks.add( new TaskFibonacci( 10 ) );
+            }
+            decomposition = new ReturnDecomposition( new SumIntegers(), tasks );
+            parentTask = new TaskFibonacci( 12 );
+            parentTask.jobId( 1 );
+            parentTask.composeId( 2 );
+            parentTask.id( 3 );
+        }
+    }
+    
+    @Benchmark
+    public Return setIds( final Decomposition decomposition ) 
+    { 
+        return decomposition.decomposition.setIds( decomposition.parentTask ); 
+    }
+}
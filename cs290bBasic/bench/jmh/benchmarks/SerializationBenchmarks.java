@@ -0,0 +1,103 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package benchmarks;
+
+import api.ReturnValue;
+import applications.euclideantsp.SharedTour;
+import applications.euclideantsp.TaskEuclideanTsp;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import system.Task;
+import util.EuclideanGraph;
+
+/**
+ * JMH microbenchmarks of Java serialization round trips of a TSP task and 
+ * of a TSP value, each on a new stream, as in a remote call.
+ * The task is a child of the root of a random instance; the value is that of the instance.
+ * @author Peter Cappello
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class SerializationBenchmarks 
+{
+    @Param( "10" )
+    public int numCities;
+    
+    @Param( "1" )
+    public long seed;
+    
+    private Task task;
+    private ReturnValue returnValueTour;
+    
+    @Setup
+    public void setup()
+    {
+        TspInstance.use( numCities, seed );
+        final List<Integer> greedyTour = EuclideanGraph.greedyTour( TaskEuclideanTsp.CITIES );
+        final SharedTour shared = new SharedTour( greedyTour, EuclideanGraph.tourDistance( TaskEuclideanTsp.CITIES, greedyTour ) );
+        final TaskEuclideanTsp root = new TaskEuclideanTsp();
+        root.shared( shared );
+        task = root.divideAndConquer().tasks().get( 0 );
+        returnValueTour = root.solve();
+    }
+    
+    @Benchmark
+    public Object taskRoundTrip() throws IOException, ClassNotFoundException { return roundTrip( task ); }
+    
+    @Benchmark
+    public Object returnValueTourRoundTrip() throws IOException, ClassNotFoundException { return roundTrip( returnValueTour ); }
+    
+    static private Object roundTrip( final Object object ) throws IOException, ClassNotFoundException
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try ( ObjectOutputStream out = new ObjectOutputStream( bytes ) )
+        {
+            out.writeObject( object );
+        }
+        try ( ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ) )
+        {
+            return in.readObject();
+        }
+    }
+}
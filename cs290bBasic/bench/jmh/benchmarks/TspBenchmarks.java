@@ -0,0 +1,97 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package benchmarks;
+
+import api.ReturnValue;
+import applications.euclideantsp.LowerBound;
+import applications.euclideantsp.LowerBoundNearestNeighbors;
+import applications.euclideantsp.SharedTour;
+import applications.euclideantsp.TaskEuclideanTsp;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import util.EuclideanGraph;
+
+/**
+ * JMH microbenchmarks of the Euclidean TSP: the incremental lower bounds, 
+ * and solving an instance sequentially.
+ * Instances are generated by EuclideanGraph.generateRandomGraph, from a fixed seed.
+ * @author Peter Cappello
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class TspBenchmarks 
+{
+    @Param( { "10", "12" } )
+    public int numCities;
+    
+    @Param( "1" )
+    public long seed;
+    
+    private SharedTour shared;
+    private TaskEuclideanTsp root;
+    private LowerBound nearestNeighbors;
+    private Integer newCity;
+    
+    @Setup
+    public void setup()
+    {
+        TspInstance.use( numCities, seed );
+        final List<Integer> greedyTour = EuclideanGraph.greedyTour( TaskEuclideanTsp.CITIES );
+        shared = new SharedTour( greedyTour, EuclideanGraph.tourDistance( TaskEuclideanTsp.CITIES, greedyTour ) );
+        root = new TaskEuclideanTsp();
+        root.shared( shared );
+        nearestNeighbors = new LowerBoundNearestNeighbors();
+        newCity = root.unvisitedCities().get( 0 );
+    }
+    
+    @Benchmark
+    public LowerBound nearestNeighborsMake() { return nearestNeighbors.make( root, newCity ); }
+    
+    @Benchmark
+    public LowerBound partialTourMake() { return root.lowerBound().make( root, newCity ); }
+    
+    @Benchmark
+    @OutputTimeUnit( TimeUnit.MILLISECONDS )
+    public ReturnValue solve()
+    {
+        final TaskEuclideanTsp task = new TaskEuclideanTsp();
+        task.shared( shared );
+        return task.solve();
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package benchmarks;
+
+import applications.euclideantsp.TaskEuclideanTsp;
+
+/**
+ * Select the TSP instance of a benchmark's JVM: TaskEuclideanTsp.CITIES is 
+ * fixed when its class is initialized, so this must precede any use of it. 
+ * JMH forks a JVM for each combination of parameters.
+ * @author Peter Cappello
+ */
+final class TspInstance 
+{
+    private TspInstance() {}
+    
+    /**
+     * @param numCities the number of cities, placed at random.
+     * @param seed the seed of their placement.
+     * @throws IllegalStateException if the JVM already uses another instance.
+     */
+    static void use( final int numCities, final long seed )
+    {
+        System.setProperty( "tsp.cities", String.valueOf( numCities ) );
+        System.setProperty( "tsp.seed", String.valueOf( seed ) );
+        if ( TaskEuclideanTsp.CITIES.length != numCities )
+        {
+            throw new IllegalStateException( "This JVM's TSP instance has " + TaskEuclideanTsp.CITIES.length 
+                                           + " cities, not " + numCities + ": run benchmarks forked." );
+        }
+    }
+}
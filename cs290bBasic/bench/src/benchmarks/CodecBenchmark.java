@@ -0,0 +1,227 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package benchmarks;
+
+import api.ReturnDecomposition;
+import api.TaskCompose;
+import applications.euclideantsp.MinTour;
+import applications.euclideantsp.SharedTour;
+import applications.euclideantsp.TaskEuclideanTsp;
+import applications.euclideantsp.Tour;
+import applications.fibonacci.SumIntegers;
+import applications.fibonacci.TaskFibonacci;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import system.CodecList;
+import system.Return;
+import system.Task;
+import util.EuclideanGraph;
+
+/**
+ * Compare the wire form of batches of Tasks and Returns: Java serialization
+ * of a list (before) against a CodecList (after).
+ * For each batch, report bytes, encode time, and decode time per element.
+ * Each encoding uses a new stream, as each remote call does.
+ * @author Peter Cappello
+ */
+public class CodecBenchmark 
+{
+    static final private int BATCH_SIZE = 64;
+    static final private int WARMUP_ITERATIONS = 2000;
+    static final private int ITERATIONS = 5000;
+    
+    public static void main( final String[] args ) throws Exception
+    {
+        System.out.println( String.format( "%-22s %8s %14s %14s %14s", 
+                "batch", "format", "bytes/elem", "encode ns/elem", "decode ns/elem" ) );
+        measure( "TaskEuclideanTsp", tspTasks() );
+        measure( "TaskFibonacci", fibonacciTasks() );
+        measure( "ReturnDecomposition", tspDecompositions() );
+        measure( "ReturnValueTour", tspValues() );
+        measure( "ReturnValueFibonacci", fibonacciValues() );
+    }
+    
+    private static void measure( final String name, final List<?> batch ) throws Exception
+    {
+        report( name, "before", batch.size(), new ArrayList<>( batch ) );
+        report( name, "after",  batch.size(), new CodecList<>( batch ) );
+    }
+    
+    private static void report( final String name, final String format, final int size, final Object batch ) 
+            throws Exception
+    {
+        final byte[] bytes = encode( batch );
+        for ( int i = 0; i < WARMUP_ITERATIONS; i++ )
+        {
+            decode( encode( batch ) );
+        }
+        long startTime = System.nanoTime();
+        for ( int i = 0; i < ITERATIONS; i++ )
+        {
+            encode( batch );
+        }
+        final double encodeTime = (double) ( System.nanoTime() - startTime ) / ITERATIONS / size;
+        startTime = System.nanoTime();
+        for ( int i = 0; i < ITERATIONS; i++ )
+        {
+            decode( bytes );
+        }
+        final double decodeTime = (double) ( System.nanoTime() - startTime ) / ITERATIONS / size;
+        System.out.println( String.format( "%-22s %8s %14.1f %14.0f %14.0f", 
+                name, format, (double) bytes.length / size, encodeTime, decodeTime ) );
+    }
+    
+    private static byte[] encode( final Object object ) throws IOException
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try ( ObjectOutputStream out = new ObjectOutputStream( bytes ) )
+        {
+            out.writeObject( object );
+        }
+        return bytes.toByteArray();
+    }
+    
+    private static Object decode( final byte[] bytes ) throws IOException, ClassNotFoundException
+    {
+        try ( ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bytes ) ) )
+        {
+            return in.readObject();
+        }
+    }
+    
+    // Batches as the Space makes them: tasks with ids, sharing their job's shared object.
+    
+    static final private long JOB_ID = ( 12345L << 48 ) + 1;
+    static private long nextId = JOB_ID + 1;
+    
+    private static SharedTour sharedTour()
+    {
+        final List<Integer> tour = EuclideanGraph.greedyTour( TaskEuclideanTsp.CITIES );
+        return new SharedTour( tour, EuclideanGraph.tourDistance( TaskEuclideanTsp.CITIES, tour ) );
+    }
+    
+    private static void setIds( final Task task, final long composeId, final int composeArgNum )
+    {
+        task.jobId( JOB_ID );
+        task.composeId( composeId );
+        task.composeArgNum( composeArgNum );
+        task.id( nextId++ );
+    }
+    
+    private static ReturnDecomposition decompose( final TaskEuclideanTsp task )
+    {
+        final ReturnDecomposition decomposition = (ReturnDecomposition) task.divideAndConquer().setIds( task );
+        final long composeId = nextId++;
+        decomposition.compose().id( composeId );
+        for ( int i = 0; i < decomposition.tasks().size(); i++ )
+        {
+            setIds( decomposition.tasks().get( i ), composeId, i );
+        }
+        return decomposition;
+    }
+    
+    private static List<Task> tspTasks()
+    {
+        final SharedTour shared = sharedTour();
+        final TaskEuclideanTsp root = new TaskEuclideanTsp();
+        setIds( root, nextId++, 0 );
+        root.shared( shared );
+        final List<Task> tasks = new ArrayList<>();
+        for ( Task child : decompose( root ).tasks() )
+        {
+            child.shared( shared );
+            for ( Task grandChild : decompose( (TaskEuclideanTsp) child ).tasks() )
+            {
+                if ( tasks.size() < BATCH_SIZE )
+                {
+                    tasks.add( grandChild.shared( shared ) );
+                }
+            }
+        }
+        return tasks;
+    }
+    
+    private static List<Return> tspDecompositions()
+    {
+        final SharedTour shared = sharedTour();
+        final TaskEuclideanTsp root = new TaskEuclideanTsp();
+        setIds( root, nextId++, 0 );
+        root.shared( shared );
+        final List<Return> decompositions = new ArrayList<>();
+        for ( Task child : decompose( root ).tasks() )
+        {
+            child.shared( shared );
+            decompositions.add( decompose( (TaskEuclideanTsp) child ).shared( shared ) );
+        }
+        return decompositions;
+    }
+    
+    private static List<Return> tspValues()
+    {
+        final SharedTour shared = sharedTour();
+        final List<Return> values = new ArrayList<>();
+        for ( int i = 0; i < BATCH_SIZE; i++ )
+        {
+            final TaskCompose<Tour> compose = new MinTour();
+            setIds( compose, nextId++, i );
+            compose.numArgs( 1 );
+            compose.arg( 0, new Tour( shared.tour(), shared.cost(), 1000 + i, 500 + i, 2000 + i ) );
+            values.add( compose.call().shared( shared ) );
+        }
+        return values;
+    }
+    
+    private static List<Task> fibonacciTasks()
+    {
+        final List<Task> tasks = new ArrayList<>();
+        final long composeId = nextId++;
+        for ( int i = 0; i < BATCH_SIZE; i++ )
+        {
+            final Task task = new TaskFibonacci( 20 + i % 10 );
+            setIds( task, composeId, i );
+            tasks.add( task );
+        }
+        return tasks;
+    }
+    
+    private static List<Return> fibonacciValues()
+    {
+        final List<Return> values = new ArrayList<>();
+        for ( int i = 0; i < BATCH_SIZE; i++ )
+        {
+            final TaskCompose<Integer> compose = new SumIntegers();
+            setIds( compose, nextId++, i );
+            compose.numArgs( 2 );
+            compose.arg( 0, i );
+            compose.arg( 1, i + 1 );
+            values.add( compose.call() );
+        }
+        return values;
+    }
+}
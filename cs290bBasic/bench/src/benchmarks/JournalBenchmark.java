@@ -0,0 +1,134 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package benchmarks;
+
+import api.JobHandle;
+import applications.euclideantsp.SharedTour;
+import applications.euclideantsp.TaskEuclideanTsp;
+import applications.fibonacci.TaskFibonacci;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import system.ComputerImpl;
+import system.SpaceImpl;
+import util.EuclideanGraph;
+
+/**
+ * Measure the overhead of journaling on the throughput of an in-process Space:
+ * the rate of many concurrent small Fibonacci jobs, each of which is
+ * several journal records, and the run time of a TSP job.
+ * Each measurement uses a new Space, without and with a journal.
+ * @author Peter Cappello
+ */
+public class JournalBenchmark 
+{
+    static final private int NUM_COMPUTERS = 2;
+    static final private int NUM_JOBS = 2000;
+    static final private int FIBONACCI_N = 12;
+    static final private int ROUNDS = 3; // the first round warms up
+    
+    public static void main( final String[] args ) throws Exception
+    {
+        System.out.println( String.format( "%-10s %8s %14s %12s", "workload", "journal", "jobs/s", "TSP ms" ) );
+        for ( int round = 0; round < ROUNDS; round++ )
+        {
+            for ( boolean isJournaled : new boolean[] { false, true } )
+            {
+                final double jobsPerSecond = measure( isJournaled, SpaceImplRunner.FIBONACCI );
+                final double tspTime = measure( isJournaled, SpaceImplRunner.TSP );
+                if ( round > 0 )
+                {
+                    System.out.println( String.format( "%-10s %8s %14.0f %12.0f", 
+                            "round " + round, isJournaled ? "on" : "off", jobsPerSecond, tspTime ) );
+                }
+            }
+        }
+        System.exit( 0 );
+    }
+    
+    private static double measure( final boolean isJournaled, final SpaceImplRunner runner ) throws Exception
+    {
+        final Path directory = Files.createTempDirectory( "journal" );
+        try
+        {
+            final SpaceImpl space = isJournaled ? new SpaceImpl( directory ) : new SpaceImpl();
+            for ( int i = 0; i < NUM_COMPUTERS; i++ )
+            {
+                space.register( new ComputerImpl( space ), 1 );
+            }
+            return runner.run( space );
+        }
+        finally
+        {
+            delete( directory );
+        }
+    }
+    
+    private static void delete( final Path directory ) throws IOException
+    {
+        try ( Stream<Path> files = Files.walk( directory ) )
+        {
+            files.sorted( Comparator.reverseOrder() ).forEach( file -> file.toFile().delete() );
+        }
+    }
+    
+    private interface SpaceImplRunner
+    {
+        /**
+         * @return jobs per second.
+         */
+        static final SpaceImplRunner FIBONACCI = space -> 
+        {
+            final long startTime = System.nanoTime();
+            final List<JobHandle> jobs = new ArrayList<>( NUM_JOBS );
+            for ( int i = 0; i < NUM_JOBS; i++ )
+            {
+                jobs.add( space.submit( new TaskFibonacci( FIBONACCI_N ) ) );
+            }
+            for ( JobHandle job : jobs )
+            {
+                job.take();
+            }
+            return NUM_JOBS / ( ( System.nanoTime() - startTime ) / 1e9 );
+        };
+        
+        /**
+         * @return milliseconds.
+         */
+        static final SpaceImplRunner TSP = space -> 
+        {
+            final List<Integer> tour = EuclideanGraph.greedyTour( TaskEuclideanTsp.CITIES );
+            final SharedTour shared = new SharedTour( tour, EuclideanGraph.tourDistance( TaskEuclideanTsp.CITIES, tour ) );
+            final long startTime = System.nanoTime();
+            space.compute( new TaskEuclideanTsp(), shared, null );
+            return ( System.nanoTime() - startTime ) / 1e6;
+        };
+        
+        double run( SpaceImpl space ) throws Exception;
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package benchmarks;
+
+import api.Space;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.rmi.Naming;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Measure speedup on localhost: for each workload size and number of Computers 
+ * of a sweep, start a SpaceImpl JVM, that many ComputerImpl JVMs, and a 
+ * ScalingClient JVM that runs the job; record the median wall time, 
+ * its T1 and TInf, and the parallel efficiency, T1 / ( P * wall time ), 
+ * where P is the number of worker threads, into a CSV file. 
+ * Then compare the wall times with those of a baseline CSV file:
+ * a wall time more than the tolerance over its baseline is a regression.
+ * A baseline is particular to its machine, and so is not committed: 
+ * if there is none, the results become it.
+ * 
+ * System properties, with their defaults:
+ * <ul>
+ * <li>scaling.computers=1,2,4 the numbers of Computers.</li>
+ * <li>scaling.workers=1 the worker threads of a Computer (its JVM's processor count).</li>
+ * <li>scaling.fibonacci=30,34 the Fibonacci numbers.</li>
+ * <li>scaling.tsp=12,13 the numbers of cities of random TSP instances.</li>
+ * <li>scaling.seed=1 the seed of the TSP instances.</li>
+ * <li>scaling.warmups=2, scaling.runs=3 the runs of a measurement.</li>
+ * <li>scaling.csv=build/bench/scaling.csv the CSV file of the results.</li>
+ * <li>scaling.baseline=build/bench/scaling-baseline.csv the baseline CSV file.</li>
+ * <li>scaling.tolerance=0.25 the fraction a wall time may exceed its baseline.</li>
+ * <li>scaling.update=false if true, write the results as the baseline, instead of comparing.</li>
+ * <li>scaling.timeout=600 the seconds a measurement may take.</li>
+ * </ul>
+ * The exit status is 1, if there is a regression. 
+ * JVM logs are in the directory scaling-logs, beside the CSV file.
+ * @author Peter Cappello
+ */
+public class ScalingBenchmark 
+{
+    static final String FIBONACCI = "fibonacci";
+    static final String TSP = "tsp";
+    static final private String HEADER = "workload,size,computers,workers,wall_ms,t1_ms,tinf_ms,parallelism,efficiency";
+    static final private String REGISTERED = "Registered computer";
+    static final private long STARTUP_TIMEOUT = TimeUnit.SECONDS.toMillis( 60 );
+    static final private long POLL_INTERVAL = 100; // ms
+    static final private Pattern KEY = Pattern.compile( "([^,]*,){3}[^,]*" ); // workload,size,computers,workers
+    
+    final private int workers = Integer.getInteger( "scaling.workers", 1 );
+    final private int numWarmUps = Integer.getInteger( "scaling.warmups", 2 );
+    final private int numRuns = Integer.getInteger( "scaling.runs", 3 );
+    final private long seed = Long.getLong( "scaling.seed", 1 );
+    final private long timeout = Integer.getInteger( "scaling.timeout", 600 );
+    final private Path csv = Paths.get( System.getProperty( "scaling.csv", "build/bench/scaling.csv" ) );
+    final private Path logDirectory = csv.toAbsolutePath().resolveSibling( "scaling-logs" );
+    final private List<Process> processes = new ArrayList<>();
+    
+    public static void main( final String[] args ) throws Exception
+    {
+        final int[] computerCounts = ints( System.getProperty( "scaling.computers", "1,2,4" ) );
+        final Map<String, int[]> sizes = new HashMap<>();
+        sizes.put( FIBONACCI, ints( System.getProperty( "scaling.fibonacci", "30,34" ) ) );
+        sizes.put( TSP,       ints( System.getProperty( "scaling.tsp", "12,13" ) ) );
+        final Path baseline = Paths.get( System.getProperty( "scaling.baseline", "build/bench/scaling-baseline.csv" ) );
+        final double tolerance = Double.parseDouble( System.getProperty( "scaling.tolerance", "0.25" ) );
+        
+        final ScalingBenchmark benchmark = new ScalingBenchmark();
+        Runtime.getRuntime().addShutdownHook( new Thread( benchmark::stopAll ) );
+        final List<String> rows = benchmark.sweep( sizes, computerCounts );
+        if ( Boolean.getBoolean( "scaling.update" ) || ! Files.exists( baseline ) )
+        {
+            write( baseline, rows );
+            System.out.println( "Wrote baseline " + baseline );
+            System.exit( 0 );
+        }
+        System.exit( compare( rows, baseline, tolerance ) ? 0 : 1 );
+    }
+    
+    private List<String> sweep( final Map<String, int[]> sizes, final int[] computerCounts ) throws Exception
+    {
+        Files.createDirectories( logDirectory );
+        final List<String> rows = new ArrayList<>();
+        rows.add( HEADER );
+        System.out.println( HEADER );
+        for ( String workload : new String[] { FIBONACCI, TSP } )
+        {
+            for ( int size : sizes.get( workload ) )
+            {
+                for ( int numComputers : computerCounts )
+                {
+                    final String row = measure( workload, size, numComputers );
+                    System.out.println( row );
+                    rows.add( row );
+                    write( csv, rows );
+                }
+            }
+        }
+        return rows;
+    }
+    
+    /**
+     * @return the CSV row of the median run.
+     */
+    private String measure( final String workload, final int size, final int numComputers ) throws Exception
+    {
+        final String name = workload + "-" + size + "-" + numComputers;
+        try
+        {
+            final Path spaceLog = logDirectory.resolve( name + "-space.log" );
+            start( workload, size, spaceLog, "system.SpaceImpl" );
+            awaitSpace();
+            for ( int i = 0; i < numComputers; i++ )
+            {
+                start( workload, size, logDirectory.resolve( name + "-computer-" + i + ".log" ),
+                       "-XX:ActiveProcessorCount=" + workers, "system.ComputerImpl", "localhost" );
+            }
+            awaitRegistrations( spaceLog, numComputers );
+            
+            final Path clientLog = logDirectory.resolve( name + "-client.log" );
+            final Process client = start( workload, size, clientLog, "benchmarks.ScalingClient", 
+                    workload, String.valueOf( size ), String.valueOf( numWarmUps ), String.valueOf( numRuns ) );
+            if ( ! client.waitFor( timeout, TimeUnit.SECONDS ) || client.exitValue() != 0 )
+            {
+                throw new IllegalStateException( name + ": the client failed; see " + clientLog );
+            }
+            final List<long[]> runs = new ArrayList<>();
+            try ( Stream<String> lines = Files.lines( clientLog ) )
+            {
+                lines.filter( line -> line.startsWith( ScalingClient.RESULT ) )
+                     .forEach( line -> runs.add( Arrays.stream( line.split( " " ) ).skip( 1 ).mapToLong( Long::parseLong ).toArray() ) );
+            }
+            runs.sort( ( a, b ) -> Long.compare( a[ 0 ], b[ 0 ] ) );
+            final long[] median = runs.get( runs.size() / 2 );
+            final double wallTime = median[ 0 ] / 1e6;
+            final double t1 = median[ 1 ] / 1e6;
+            final double tInf = median[ 2 ] / 1e6;
+            return String.format( "%s,%d,%d,%d,%.1f,%.1f,%.1f,%.2f,%.3f", workload, size, numComputers, workers, 
+                    wallTime, t1, tInf, t1 / Math.max( tInf, 1e-6 ), t1 / ( numComputers * workers * wallTime ) );
+        }
+        finally
+        {
+            stopAll();
+        }
+    }
+    
+    /**
+     * Start a JVM with this JVM's class path, and the TSP instance of the measurement.
+     * @param log the file of its output.
+     */
+    private Process start( final String workload, final int size, final Path log, final String... args ) throws IOException
+    {
+        final List<String> command = new ArrayList<>();
+        command.add( Paths.get( System.getProperty( "java.home" ), "bin", "java" ).toString() );
+        command.add( "-cp" );
+        command.add( System.getProperty( "java.class.path" ) );
+        command.add( "-Djava.security.policy=" + System.getProperty( "scaling.policy", "policy" ) );
+        if ( javaVersion() >= 12 )
+        {
+            command.add( "-Djava.security.manager=allow" );
+        }
+        if ( workload.equals( TSP ) )
+        {
+            command.add( "-Dtsp.cities=" + size );
+            command.add( "-Dtsp.seed=" + seed );
+        }
+        command.addAll( Arrays.asList( args ) );
+        final Process process = new ProcessBuilder( command ).redirectErrorStream( true ).redirectOutput( log.toFile() ).start();
+        processes.add( process );
+        return process;
+    }
+    
+    private void awaitSpace() throws InterruptedException
+    {
+        final long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT;
+        while ( true )
+        {
+            try
+            {
+                Naming.lookup( "rmi://localhost:" + Space.PORT + "/" + Space.SERVICE_NAME );
+                return;
+            }
+            catch ( Exception exception )
+            {
+                if ( System.currentTimeMillis() > deadline )
+                {
+                    throw new IllegalStateException( "The Space did not start.", exception );
+                }
+                Thread.sleep( POLL_INTERVAL );
+            }
+        }
+    }
+    
+    private static void awaitRegistrations( final Path spaceLog, final int numComputers ) throws IOException, InterruptedException
+    {
+        final long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT;
+        while ( count( spaceLog, REGISTERED ) < numComputers )
+        {
+            if ( System.currentTimeMillis() > deadline )
+            {
+                throw new IllegalStateException( "Computers did not register; see " + spaceLog );
+            }
+            Thread.sleep( POLL_INTERVAL );
+        }
+    }
+    
+    private synchronized void stopAll()
+    {
+        for ( Process process : processes )
+        {
+            process.destroyForcibly();
+        }
+        for ( Process process : processes )
+        {
+            try
+            {
+                process.waitFor();
+            }
+            catch ( InterruptedException ignore ) {}
+        }
+        processes.clear();
+    }
+    
+    /**
+     * Compare the wall time of each row with that of its baseline row, if any.
+     * @return true, if there is no regression.
+     */
+    private static boolean compare( final List<String> rows, final Path baseline, final double tolerance ) throws IOException
+    {
+        final Map<String, Double> baselineWallTimes = new HashMap<>();
+        try ( Stream<String> baselineRows = Files.lines( baseline ) )
+        {
+            baselineRows.skip( 1 ).forEach( row -> baselineWallTimes.put( key( row ), wallTime( row ) ) );
+        }
+        boolean isOk = true;
+        for ( String row : rows.subList( 1, rows.size() ) )
+        {
+            final Double baselineWallTime = baselineWallTimes.get( key( row ) );
+            if ( baselineWallTime == null )
+            {
+                continue;
+            }
+            final double change = wallTime( row ) / baselineWallTime - 1;
+            final boolean isRegression = change > tolerance;
+            isOk &= ! isRegression;
+            System.out.println( String.format( "%-10s %-24s %10.1f ms %+7.1f%%", 
+                    isRegression ? "REGRESSION" : "ok", key( row ), wallTime( row ), 100 * change ) );
+        }
+        return isOk;
+    }
+    
+    private static String key( final String row )
+    {
+        final Matcher matcher = KEY.matcher( row );
+        return matcher.lookingAt() ? matcher.group() : row;
+    }
+    
+    private static double wallTime( final String row ) { return Double.parseDouble( row.split( "," )[ 4 ] ); }
+    
+    private static long count( final Path file, final String string ) throws IOException
+    {
+        try ( BufferedReader reader = Files.newBufferedReader( file, StandardCharsets.UTF_8 ) )
+        {
+            return reader.lines().filter( line -> line.contains( string ) ).count();
+        }
+    }
+    
+    private static void write( final Path file, final List<String> rows ) throws IOException
+    {
+        Files.createDirectories( file.toAbsolutePath().getParent() );
+        try ( PrintWriter writer = new PrintWriter( Files.newBufferedWriter( file, StandardCharsets.UTF_8 ) ) )
+        {
+            rows.forEach( writer::println );
+        }
+    }
+    
+    private static int[] ints( final String list ) 
+    { 
+        return list.trim().isEmpty() ? new int[ 0 ] : Arrays.stream( list.split( "," ) ).map( String::trim ).mapToInt( Integer::parseInt ).toArray(); 
+    }
+    
+    private static int javaVersion()
+    {
+        final String version = System.getProperty( "java.specification.version" );
+        return Integer.parseInt( version.startsWith( "1." ) ? version.substring( 2 ) : version );
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package benchmarks;
+
+import api.ReturnValue;
+import api.Space;
+import applications.euclideantsp.SharedTour;
+import applications.euclideantsp.TaskEuclideanTsp;
+import applications.fibonacci.TaskFibonacci;
+import java.rmi.Naming;
+import java.util.List;
+import util.EuclideanGraph;
+
+/**
+ * The client JVM of a ScalingBenchmark measurement: run a job on the Space 
+ * at localhost, some times, to warm up, then some times, each reported as
+ * a line: RESULT wall time, T1, TInf, in nanoseconds.
+ * A TSP job's instance is that of TaskEuclideanTsp.CITIES: 
+ * its JVM is given the tsp.cities and tsp.seed properties of the Space and Computers.
+ * @author Peter Cappello
+ */
+public class ScalingClient 
+{
+    static final String RESULT = "RESULT";
+    
+    /**
+     * @param args workload (fibonacci or tsp), its size, the number of warm up runs, 
+     * the number of measured runs.
+     * @throws Exception if a job fails.
+     */
+    public static void main( final String[] args ) throws Exception
+    {
+        final String workload = args[ 0 ];
+        final int size = Integer.parseInt( args[ 1 ] );
+        final int numWarmUps = Integer.parseInt( args[ 2 ] );
+        final int numRuns = Integer.parseInt( args[ 3 ] );
+        final Space space = (Space) Naming.lookup( "rmi://localhost:" + Space.PORT + "/" + Space.SERVICE_NAME );
+        for ( int run = 0; run < numWarmUps + numRuns; run++ )
+        {
+            final long startTime = System.nanoTime();
+            final ReturnValue returnValue = run( space, workload, size );
+            final long wallTime = System.nanoTime() - startTime;
+            if ( run >= numWarmUps )
+            {
+                System.out.println( RESULT + " " + wallTime + " " + returnValue.t1() + " " + returnValue.tInf() );
+            }
+        }
+        System.exit( 0 );
+    }
+    
+    private static ReturnValue run( final Space space, final String workload, final int size ) throws Exception
+    {
+        switch ( workload )
+        {
+            case ScalingBenchmark.FIBONACCI:
+                return space.compute( new TaskFibonacci( size ) );
+                
+            case ScalingBenchmark.TSP:
+                if ( TaskEuclideanTsp.CITIES.length != size )
+                {
+                    throw new IllegalStateException( "TSP instance has " + TaskEuclideanTsp.CITIES.length + " cities, not " + size );
+                }
+                final List<Integer> tour = EuclideanGraph.greedyTour( TaskEuclideanTsp.CITIES );
+                final SharedTour shared = new SharedTour( tour, EuclideanGraph.tourDistance( TaskEuclideanTsp.CITIES, tour ) );
+                return space.compute( new TaskEuclideanTsp(), shared, null );
+                
+            default:
+                throw new IllegalArgumentException( "Unknown workload: " + workload );
+        }
+    }
+}
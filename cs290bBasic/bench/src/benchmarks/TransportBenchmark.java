@@ -0,0 +1,187 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package benchmarks;
+
+import api.JobHandle;
+import api.RemoteEventListener;
+import api.ReturnValue;
+import api.Shared;
+import api.Space;
+import applications.fibonacci.TaskFibonacci;
+import java.rmi.RemoteException;
+import java.rmi.server.RemoteObject;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import system.CodecList;
+import system.Computer;
+import system.ComputerImpl;
+import system.Return;
+import system.ReturnListener;
+import system.SchedulingPolicy;
+import system.SpaceLoad;
+import system.Task;
+import transport.NioComputerConnector;
+import transport.NioSpaceEndpoint;
+
+/**
+ * Compare the RMI and NIO transports between a Space and a Computer on localhost:
+ * the round trip time of a heartbeat, and the throughput of batches of 
+ * trivial tasks, with a window of batches in flight.
+ * @author Peter Cappello
+ */
+public class TransportBenchmark 
+{
+    static final private int NUM_HEARTBEATS = 5000;
+    static final private int NUM_TASKS = 100000;
+    static final private int WINDOW = 8;
+    static final private int[] BATCH_SIZES = { 1, 16, 64 };
+    
+    public static void main( final String[] args ) throws Exception
+    {
+        final ComputerImpl computer = new ComputerImpl( null );
+        final Computer rmi = (Computer) RemoteObject.toStub( computer );
+        final Computer nio = connectNio( computer );
+        System.out.println( String.format( "%-10s %10s %16s %12s", "transport", "batch size", "round trip us", "tasks/s" ) );
+        for ( int i = 0; i < 2; i++ ) // the first round warms up
+        {
+            for ( int batchSize : BATCH_SIZES )
+            {
+                measure( "RMI", rmi, batchSize, i > 0 );
+                measure( "NIO", nio, batchSize, i > 0 );
+            }
+        }
+        System.exit( 0 );
+    }
+    
+    private static void measure( final String name, final Computer computer, final int batchSize, final boolean report ) 
+            throws Exception
+    {
+        long startTime = System.nanoTime();
+        for ( int i = 0; i < NUM_HEARTBEATS; i++ )
+        {
+            computer.heartbeat();
+        }
+        final double roundTrip = ( System.nanoTime() - startTime ) / 1000.0 / NUM_HEARTBEATS;
+        
+        final Semaphore window = new Semaphore( WINDOW );
+        final Listener listener = new Listener( window );
+        final ReturnListener listenerStub = (ReturnListener) UnicastRemoteObject.exportObject( listener, 0 );
+        final List<Task> batch = batch( batchSize );
+        final int numBatches = NUM_TASKS / batchSize;
+        startTime = System.nanoTime();
+        for ( int i = 0; i < numBatches; i++ )
+        {
+            window.acquire();
+            computer.executeAsync( i, batch, SpaceLoad.HUNGRY, computer instanceof RemoteObject ? listenerStub : listener );
+        }
+        window.acquire( WINDOW );
+        final double tasksPerSecond = numBatches * batchSize / ( ( System.nanoTime() - startTime ) / 1e9 );
+        UnicastRemoteObject.unexportObject( listener, true );
+        if ( report )
+        {
+            System.out.println( String.format( "%-10s %10d %16.1f %12.0f", name, batchSize, roundTrip, tasksPerSecond ) );
+        }
+    }
+    
+    private static List<Task> batch( final int batchSize )
+    {
+        final List<Task> tasks = new ArrayList<>( batchSize );
+        for ( int i = 0; i < batchSize; i++ )
+        {
+            final Task task = new TaskFibonacci( 1 );
+            task.jobId( 1 );
+            task.composeId( 2 );
+            task.id( 3 + i );
+            task.composeArgNum( i );
+            tasks.add( task );
+        }
+        return new CodecList<>( tasks );
+    }
+    
+    /**
+     * Start a NIO endpoint, connect the computer to it, and return the endpoint's proxy for the computer.
+     */
+    private static Computer connectNio( final Computer computer ) throws Exception
+    {
+        final CompletableFuture<Computer> registered = new CompletableFuture<>();
+        final NioSpaceEndpoint endpoint = new NioSpaceEndpoint( new RegistrationSpace( registered ), 0 );
+        endpoint.start();
+        new NioComputerConnector( computer, Runtime.getRuntime().availableProcessors(), "localhost", endpoint.port() ).start();
+        return registered.get();
+    }
+    
+    static final private class Listener implements ReturnListener
+    {
+        final private Semaphore window;
+        
+        private Listener( final Semaphore window ) { this.window = window; }
+        
+        @Override
+        public void accept( final long batchId, final List<Return> returns, final long computerTime ) 
+        { 
+            window.release(); 
+        }
+    }
+    
+    /**
+     * A Space that only registers a computer. The benchmark drives the computer 
+     * directly, and runs no jobs: the job methods are deliberately unused.
+     */
+    static final private class RegistrationSpace implements Space
+    {
+        final private CompletableFuture<Computer> registered;
+        
+        private RegistrationSpace( final CompletableFuture<Computer> registered ) { this.registered = registered; }
+        
+        @Override
+        public void register( final Computer computer, final int numProcessors ) { registered.complete( computer ); }
+        
+        @Override
+        public ReturnValue compute( final Task task ) { throw unused(); }
+
+        @Override
+        public ReturnValue compute( final Task task, final Shared shared, final RemoteEventListener listener ) { throw unused(); }
+
+        @Override
+        public JobHandle submit( final Task task ) { throw unused(); }
+
+        @Override
+        public JobHandle submit( final Task task, final Shared shared, final RemoteEventListener listener ) { throw unused(); }
+
+        @Override
+        public JobHandle submit( final Task task, final Shared shared, final RemoteEventListener listener, 
+                                 final SchedulingPolicy policy ) { throw unused(); }
+
+        @Override
+        public JobHandle job( final long jobId ) { throw unused(); }
+        
+        private static UnsupportedOperationException unused()
+        {
+            return new UnsupportedOperationException( "The transport benchmark runs no jobs." );
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package api;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.net.MalformedURLException;
+import java.rmi.NoSuchObjectException;
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import system.SchedulingPolicy;
+import system.Task;
+
+/**
+ * Run jobs, back to back, without AWT or Swing: no frame, no view of a value, 
+ * no rendering of shared objects, and no security manager. 
+ * Jobs share the JVM, so later jobs run warmed up.
+ * Each job's result is a JSON object: its name, id, wall time, T1, TInf, 
+ * and parallelism; its shared object's improvements, if it has one; and its value, 
+ * as ReturnValue.json makes it.
+ * @author Peter Cappello
+ */
+public class HeadlessJobRunner 
+{
+    final private Space space;
+    final private List<String> results = new ArrayList<>();
+    
+    /**
+     * @param args command line args - 0th element, if any, is Space domain name; 
+     * otherwise, the jobs run in a Space in this JVM.
+     * @throws RemoteException occurs if there is a communication problem or
+     * the remote service is not responding
+     * @throws NotBoundException There is no Space service bound in the RMI registry.
+     * @throws MalformedURLException the URL provided for the Space RMI registry is malformed.
+     */
+    public HeadlessJobRunner( final String[] args ) throws RemoteException, NotBoundException, MalformedURLException
+    {
+        System.setProperty( "java.awt.headless", "true" );
+        space = JobRunner.connect( args );
+    }
+    
+    /**
+     * Run a job, and keep its result. 
+     * If the job fails, its result is its name, its id, if it has one, and the error.
+     * @param name the name of the job, in its result.
+     * @param task the task that defines the job.
+     * @param shared the job's initial shared object; null, if the job does not use one.
+     * @param policy the order in which the job's ready tasks are taken.
+     * @return the job's result, as JSON.
+     * @throws RemoteException if the listener of the job's shared objects cannot be exported.
+     */
+    public String run( final String name, final Task task, final Shared shared, final SchedulingPolicy policy ) 
+            throws RemoteException
+    {
+        final SharedListener listener = shared == null ? null : new SharedListener();
+        final long startTime = System.nanoTime();
+        String jobId = "null";
+        final StringBuilder result = new StringBuilder();
+        try
+        {
+            final JobHandle<?> job = space.submit( task, shared, listener, policy );
+            jobId = "\"" + job.id() + "\"";
+            final ReturnValue<?> returnValue = job.take();
+            final long wallTime = System.nanoTime() - startTime;
+            result.append( String.format( Locale.ROOT, "{\"name\":%s,\"job\":%s,\"wallMs\":%.3f,\"t1Ms\":%.3f,\"tInfMs\":%.3f,\"parallelism\":%.2f", 
+                    ReturnValue.jsonString( name ), jobId, wallTime / 1e6, returnValue.t1() / 1e6, returnValue.tInf() / 1e6, 
+                    returnValue.t1() / (double) Math.max( 1, returnValue.tInf() ) ) );
+            if ( listener != null )
+            {
+                result.append( listener.json( startTime ) ); // take returns after the job's events are sent to it
+            }
+            result.append( ",\"value\":" ).append( returnValue.json() ).append( '}' );
+            Logger.getLogger( getClass().getCanonicalName() )
+                  .log( Level.INFO, "Job {0} run time: {1} ms.", new Object[]{ name, wallTime / 1000000 } );
+        }
+        catch ( RemoteException exception )
+        {
+            result.setLength( 0 );
+            result.append( "{\"name\":" ).append( ReturnValue.jsonString( name ) )
+                  .append( ",\"job\":" ).append( jobId )
+                  .append( ",\"error\":" ).append( ReturnValue.jsonString( String.valueOf( exception.getMessage() ) ) )
+                  .append( '}' );
+            Logger.getLogger( getClass().getCanonicalName() ).log( Level.WARNING, "Job " + name + " failed.", exception );
+        }
+        finally
+        {
+            if ( listener != null )
+            {
+                listener.unexport();
+            }
+        }
+        results.add( result.toString() );
+        return result.toString();
+    }
+    
+    /**
+     * Write the results of the jobs run so far, as a JSON array, one result per line.
+     * @param writer receives the results; it is flushed, not closed.
+     * @throws IOException if the writer fails.
+     */
+    public void write( final Writer writer ) throws IOException
+    {
+        final PrintWriter printWriter = new PrintWriter( writer );
+        printWriter.println( "[" );
+        printWriter.println( String.join( ",\n", results ) );
+        printWriter.println( "]" );
+        printWriter.flush();
+        if ( printWriter.checkError() )
+        {
+            throw new IOException( "Results not written." );
+        }
+    }
+    
+    /**
+     * Counts a job's improved shared objects, without rendering them.
+     * The first shared object the job forwards is its initial one.
+     */
+    private static class SharedListener extends UnicastRemoteObject implements RemoteEventListener<Shared<?>>
+    {
+        static final private long serialVersionUID = 1L;
+        
+        private int numEvents;
+        private int numImprovements;
+        private long lastImprovementTime;
+        
+        private SharedListener() throws RemoteException {}
+        
+        @Override
+        public synchronized void accept( final Shared<?> shared )
+        {
+            if ( numEvents++ > 0 )
+            {
+                numImprovements++;
+                lastImprovementTime = System.nanoTime();
+            }
+        }
+        
+        /**
+         * @param startTime the job's start time.
+         * @return the JSON fields of the improvements: their number, and the time of the last.
+         */
+        private synchronized String json( final long startTime )
+        {
+            return String.format( Locale.ROOT, ",\"improvements\":%d,\"lastImprovementMs\":%.3f", 
+                    numImprovements, numImprovements == 0 ? 0 : ( lastImprovementTime - startTime ) / 1e6 );
+        }
+        
+        private void unexport()
+        {
+            try { UnicastRemoteObject.unexportObject( this, true ); }
+            catch ( NoSuchObjectException ignore ) {}
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package api;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A handle on a job submitted to a Space.
+ * A client may poll it, wait on it, with or without a timeout, 
+ * or register a listener that is called when the job completes.
+ * The Space may stop serving a handle some time after its job completes.
+ * @author Peter Cappello
+ * @param <T> type of the job's value.
+ */
+public interface JobHandle<T> extends Remote
+{
+    /**
+     * @return the id of the job.
+     * @throws RemoteException
+     */
+    long id() throws RemoteException;
+    
+    /**
+     * @return true if and only if the job has completed.
+     * @throws RemoteException
+     */
+    boolean isDone() throws RemoteException;
+    
+    /**
+     * Take the job's value, waiting until the job completes.
+     * @return the job's value.
+     * @throws RemoteException if the job failed: its cause is the job's.
+     */
+    ReturnValue<T> take() throws RemoteException;
+    
+    /**
+     * Take the job's value, waiting at most the given time for the job to complete.
+     * @param timeout the maximum time to wait.
+     * @param unit the unit of timeout.
+     * @return the job's value, or null if the job did not complete in time.
+     * @throws RemoteException if the job failed: its cause is the job's.
+     */
+    ReturnValue<T> take( long timeout, TimeUnit unit ) throws RemoteException;
+    
+    /**
+     * Register a listener that accepts the job's value when the job completes;
+     * immediately, if it already has. If the job fails, it accepts null.
+     * @param listener the listener.
+     * @throws RemoteException
+     */
+    void addListener( RemoteEventListener<ReturnValue<T>> listener ) throws RemoteException;
+}
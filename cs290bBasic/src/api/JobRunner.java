@@ -30,6 +30,8 @@ import java.net.MalformedURLException;
 import java.rmi.Naming;
 import java.rmi.NotBoundException;
 import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JFrame;
@@ -37,6 +39,7 @@ import javax.swing.JLabel;
 import javax.swing.JScrollPane;
 import system.ComputerImpl;
 import system.Configuration;
+import system.SchedulingPolicy;
 import system.SpaceImpl;
 
 /**
@@ -64,26 +67,47 @@ public class JobRunner<T> extends JFrame
         System.setSecurityManager( new SecurityManager() );
         setTitle( title );
         setDefaultCloseOperation( JFrame.EXIT_ON_CLOSE );
+        space = connect( args );
+    }
+    
+    /**
+     * @param args command line args - 0th element, if any, is Space domain name; 
+     * otherwise, a Space, with its Computers, is made in this JVM.
+     * @return the Space that runs the jobs.
+     * @throws RemoteException occurs if there is a communication problem or
+     * the remote service is not responding
+     * @throws NotBoundException There is no Space service bound in the RMI registry.
+     * @throws MalformedURLException the URL provided for the Space RMI registry is malformed.
+     */
+    static Space connect( final String[] args ) 
+           throws RemoteException, NotBoundException, MalformedURLException
+    {
         if ( args.length == 0 )
         {
-            space = new SpaceImpl();
-            int numComputers = Configuration.MULTI_COMPUTERS 
-                             ? Runtime.getRuntime().availableProcessors() : 1;
+            final SpaceImpl space = new SpaceImpl();
+            final int numProcessors = Runtime.getRuntime().availableProcessors();
+            final int numComputers = Configuration.MULTI_COMPUTERS ? numProcessors : 1;
+            final List<ComputerImpl> computers = new ArrayList<>();
             for ( int i = 0; i < numComputers; i++ )
             {
-                space.register( new ComputerImpl( space ), SpaceImpl.PROXIES_PER_PROCESSOR * numComputers );
+                final ComputerImpl computer = new ComputerImpl( space );
+                computers.add( computer );
+                space.register( computer, Math.max( 1, numProcessors / numComputers ) );
             }
+            Runtime.getRuntime().addShutdownHook( new Thread( () -> 
+            {
+                computers.forEach( ComputerImpl::close );
+                space.close();
+            } ) );
+            return space;
         }
-        else
-        {
-            final String url = "rmi://" 
-                             + args[ 0 ] 
-                             + ":" 
-                             + Space.PORT 
-                             + "/" 
-                             + Space.SERVICE_NAME;
-            space = (Space) Naming.lookup( url );
-        }
+        final String url = "rmi://" 
+                         + args[ 0 ] 
+                         + ":" 
+                         + Space.PORT 
+                         + "/" 
+                         + Space.SERVICE_NAME;
+        return (Space) Naming.lookup( url );
     }
     
     /**
@@ -95,6 +119,7 @@ public class JobRunner<T> extends JFrame
      */
     public void run( final Task task ) throws RemoteException
     {
+        @SuppressWarnings( "unchecked" )
         ReturnValue<T> returnValue = space.compute( task );
         view( returnValue.view() );
         Logger.getLogger( this.getClass().getCanonicalName() )
@@ -111,10 +136,28 @@ public class JobRunner<T> extends JFrame
      * the remote service is not responding
      */
     public void run( final Task task, Shared shared, RemoteEventListener remoteEventListener ) throws RemoteException
+    {
+        run( task, shared, remoteEventListener, SchedulingPolicy.LIFO );
+    }
+    
+    /**
+     * Run the Job: Generate the tasks, retrieve the results, compose a solution
+     * to the original problem, and display the solution.
+     * @param task the task that defines the job.
+     * @param shared
+     * @param remoteEventListener
+     * @param policy the order in which the job's ready tasks are taken.
+     * @throws RemoteException occurs if there is a communication problem or
+     * the remote service is not responding
+     */
+    public void run( final Task task, Shared shared, RemoteEventListener remoteEventListener, 
+                     final SchedulingPolicy policy ) throws RemoteException
     {
         Thread thread = new Thread( ( Runnable )remoteEventListener );
         thread.start();
-        view( space.compute( task, shared, remoteEventListener ).view() );
+        @SuppressWarnings( "unchecked" )
+        final ReturnValue<T> returnValue = space.submit( task, shared, remoteEventListener, policy ).take();
+        view( returnValue.view() );
         Logger.getLogger( this.getClass().getCanonicalName() )
               .log( Level.INFO, "Job run time: {0} ms.", ( System.nanoTime() - startTime ) / 1000000 );
     }
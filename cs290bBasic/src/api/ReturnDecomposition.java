@@ -24,13 +24,51 @@
 package api;
 
 import system.Task;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
+import system.Codec;
+import system.Codecs;
 import system.Return;
 import system.SpaceImpl;
 
 public class ReturnDecomposition extends Return
 {    
+    static
+    {
+        Codecs.register( ReturnDecomposition.class, new Codec<ReturnDecomposition>()
+        {
+            @Override
+            public void write( final ObjectOutput out, final ReturnDecomposition decomposition ) throws IOException 
+            {
+                Codecs.write( out, decomposition.compose );
+                Codecs.writeVarLong( out, decomposition.tasks.size() );
+                for ( Task task : decomposition.tasks )
+                {
+                    Codecs.write( out, task );
+                }
+                Codecs.writeReturn( out, decomposition );
+            }
+
+            @Override
+            public ReturnDecomposition read( final ObjectInput in ) throws IOException, ClassNotFoundException 
+            {
+                final TaskCompose compose = (TaskCompose) Codecs.read( in );
+                final int numTasks = (int) Codecs.readVarLong( in );
+                final List<Task> tasks = new ArrayList<>( numTasks );
+                for ( int i = 0; i < numTasks; i++ )
+                {
+                    tasks.add( (Task) Codecs.read( in ) );
+                }
+                final ReturnDecomposition decomposition = new ReturnDecomposition( compose, tasks );
+                Codecs.readReturn( in, decomposition );
+                return decomposition;
+            }
+        } );
+    }
+    
     final private TaskCompose compose;
     final private List<? extends Task> tasks;
     
@@ -44,36 +82,49 @@ public class ReturnDecomposition extends Return
     
     public List<? extends Task> tasks() { return tasks; }
     
+    /**
+     * Link the compose task to the parent task's compose task, and the 
+     * tasks to the compose task's inputs. 
+     * Ids are assigned by the Space, when it processes this decomposition.
+     * @param parentTask the decomposed task.
+     * @return this.
+     */
     @Override
     public Return setIds( Task parentTask )
     {
-        final UUID composeId = UUID.randomUUID();
-        compose.id( composeId );
+        compose.jobId( parentTask.jobId() );
         compose.composeId( parentTask.composeId() );
         compose.composeArgNum( parentTask.composeArgNum() );
         compose.numArgs( tasks.size() );
         compose.decomposeTaskRunTime( taskRunTime() );
         for ( int i = 0; i < tasks.size(); i++  )
         {
-            Task task = tasks.get( i );
-            task.id( UUID.randomUUID() );
-            assert task.id() != null;
-            task.composeId( composeId );
-            assert task.composeId() != null;
-            task.composeArgNum( i );
+            tasks.get( i ).jobId( parentTask.jobId() );
+            tasks.get( i ).composeArgNum( i );
         }
         return this;
     }
     
     /**
-     *
+     * Assign ids to the compose task and the tasks, from one block of Space ids.
      * @param space the Space that holds the Task and Results.
+     * @param computerId the id of the computer that decomposed the parent task:
+     * its deque receives the child tasks.
      */
     @Override
-    public void process( final Task parentTask, final SpaceImpl space ) 
+    public void process( final Task parentTask, final SpaceImpl space, final int computerId ) 
     {
+        final long composeId = space.makeTaskIds( tasks.size() + 1 );
+        compose.id( composeId );
+        for ( int i = 0; i < tasks.size(); i++  )
+        {
+            final Task task = tasks.get( i );
+            task.id( composeId + 1 + i );
+            task.composeId( composeId );
+        }
         compose.decomposeTaskRunTime( taskRunTime() );
+        space.journalDecomposition( parentTask, compose, tasks );
         space.putCompose( compose );
-        space.putReadyTasks( tasks );
+        space.putReadyTasks( computerId, tasks );
     }
 }
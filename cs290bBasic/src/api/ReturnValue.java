@@ -23,8 +23,11 @@
  */
 package api;
 
-import java.util.UUID;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import javax.swing.JLabel;
+import system.Codecs;
 import system.Task;
 import system.Return;
 import system.SpaceImpl;
@@ -36,7 +39,7 @@ import system.SpaceImpl;
  */
 abstract public class ReturnValue<T> extends Return
 {    
-    final private UUID composeId;
+    final private long composeId;
     final private int composeArgNum;
     final private T value;
     
@@ -48,15 +51,75 @@ abstract public class ReturnValue<T> extends Return
         this.value = value; 
     }
     
+    /**
+     * For codecs.
+     * @param composeId the id of the compose task that receives this value.
+     * @param composeArgNum the index of the input of that compose task.
+     * @param value the value.
+     */
+    protected ReturnValue( final long composeId, final int composeArgNum, final T value ) 
+    { 
+        this.composeId = composeId;
+        this.composeArgNum = composeArgNum;
+        this.value = value; 
+    }
+    
     public T value() { return value; }
     
+    public long composeId() { return composeId; }
+    
+    public int composeArgNum() { return composeArgNum; }
+    
+    /**
+     * Write the fields of a ReturnValue, including its value, encoded if it has a codec.
+     * @param out the stream.
+     * @param returnValue the ReturnValue.
+     * @throws IOException
+     */
+    public static void write( final ObjectOutput out, final ReturnValue<?> returnValue ) throws IOException
+    {
+        out.writeLong( returnValue.composeId );
+        Codecs.writeVarLong( out, returnValue.composeArgNum );
+        Codecs.write( out, returnValue.value );
+        Codecs.writeReturn( out, returnValue );
+    }
+    
+    /**
+     * Make a ReturnValue, and read into it the fields written by write.
+     * @param <R> the type of the ReturnValue.
+     * @param in the stream.
+     * @param factory makes the ReturnValue from its composeId, composeArgNum, and value.
+     * @return the ReturnValue.
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    public static <R extends ReturnValue<?>> R read( final ObjectInput in, final Factory<R> factory ) 
+            throws IOException, ClassNotFoundException
+    {
+        final long composeId = in.readLong();
+        final int composeArgNum = (int) Codecs.readVarLong( in );
+        final R returnValue = factory.make( composeId, composeArgNum, Codecs.read( in ) );
+        Codecs.readReturn( in, returnValue );
+        return returnValue;
+    }
+    
+    /**
+     * Makes a ReturnValue of some subclass.
+     * @param <R> the subclass.
+     */
+    public interface Factory<R extends ReturnValue<?>>
+    {
+        R make( long composeId, int composeArgNum, Object value );
+    }
+    
     /**
      * Update the taskCompose task that is waiting for this input.
-     * @param associatedTask unused - the task whose Result is to be processed.
+     * @param associatedTask the task whose Result is to be processed.
      * @param space containing the taskCompose task that is waiting for this value.
+     * @param computerId unused - the id of the computer that produced this value.
      */
     @Override
-    public void process( final Task associatedTask, final SpaceImpl space )
+    public void process( final Task associatedTask, final SpaceImpl space, final int computerId )
     {
         if ( associatedTask instanceof TaskCompose )
         {
@@ -65,23 +128,64 @@ abstract public class ReturnValue<T> extends Return
             t1(   commonTime + task.sumChildT1() );
             tInf( commonTime + task.maxChildTInf() );
         }
-        else
+        final long rootComposeId = space.rootTaskReturnValue( associatedTask.jobId() );
+        if ( rootComposeId == SpaceImpl.NO_JOB )
         {
-            t1(   taskRunTime() );
-            tInf( taskRunTime() );
+            return; // the job has completed, or failed: its result is dropped.
         }
-        if ( composeId.equals( space.rootTaskReturnValue() ) )
+        space.journalValue( associatedTask, this );
+        if ( composeId == rootComposeId )
         {
-            space.tInf( tInf() );
-            space.putResult( this );
+            space.putResult( associatedTask.jobId(), this );
             return;
         }
-        final TaskCompose taskCompose = space.getCompose( composeId );
+        @SuppressWarnings( "unchecked" ) // its args are its children's values
+        final TaskCompose<Object> taskCompose = space.getCompose( composeId );
         assert taskCompose != null;
-        taskCompose.arg( composeArgNum, value, space );
+        // aggregate time measures before setting the input that may complete the compose task.
         taskCompose.sumChildT1( t1() );
         taskCompose.maxChildTInf( tInf() );
+        taskCompose.arg( composeArgNum, value, space );
     }
     
     abstract public JLabel view();
+    
+    /**
+     * For headless runs.
+     * @return the value, as JSON: a finite number, or boolean, as such; otherwise, its string.
+     */
+    public String json() 
+    { 
+        return value instanceof Boolean || value instanceof Number && Double.isFinite( ( (Number) value ).doubleValue() ) 
+             ? String.valueOf( value ) : jsonString( String.valueOf( value ) ); 
+    }
+    
+    /**
+     * @param string a string.
+     * @return the string, as a JSON string.
+     */
+    protected static String jsonString( final String string )
+    {
+        final StringBuilder json = new StringBuilder( string.length() + 2 ).append( '"' );
+        for ( char c : string.toCharArray() )
+        {
+            switch ( c )
+            {
+                case '"':  json.append( "\\\"" ); break;
+                case '\\': json.append( "\\\\" ); break;
+                case '\n': json.append( "\\n" ); break;
+                case '\t': json.append( "\\t" ); break;
+                default:   
+                    if ( c < ' ' ) 
+                    {
+                        json.append( String.format( "\\u%04x", (int) c ) );
+                    }
+                    else
+                    {
+                        json.append( c );
+                    }
+            }
+        }
+        return json.append( '"' ).toString();
+    }
 }
@@ -26,20 +26,37 @@ package api;
 import java.io.Serializable;
 
 /**
- * This is an immutable class.
+ * This is an immutable class, but for its version: 
+ * the Space numbers the shared objects that it adopts for a job 1, 2, ..., 
+ * so that a computer is sent each version once.
+ * A subclass that is Externalizable must write and read its version.
  * @author Peter Cappello
  * @param <T> the sharedObject object's type.
  */
 abstract public class Shared<T extends Shared> implements Serializable
 {        
     private T sharedObject;
+    private volatile long version;
     
     public T shared() { return sharedObject; }
     
+    /**
+     * @return the version of this shared object in its job; 0, if the Space has not adopted it.
+     */
+    public long version() { return version; }
+    public void version( final long version ) { this.version = version; }
+    
     /**
      * Is this sharedObject object older that that sharedObject object?
      * @param that should not be null.
      * @return true if and only if this is older than that.
      */
     abstract public boolean isOlderThan( final T that );
+    
+    /**
+     * Branch-and-bound: the cost of the best solution found so far.
+     * A ready task whose bound is no less is pruned.
+     * @return the bound; Double.POSITIVE_INFINITY, if this bounds no task.
+     */
+    public double bound() { return Double.POSITIVE_INFINITY; }
 }
@@ -26,8 +26,8 @@ package api;
 import system.Task;
 import java.rmi.Remote;
 import java.rmi.RemoteException;
-import java.util.List;
 import system.Computer;
+import system.SchedulingPolicy;
 
 /**
  *
@@ -46,7 +46,7 @@ public interface Space extends Remote
     public static String SERVICE_NAME = "Space";
 
     /**
-     *
+     * A Space may compute many jobs concurrently.
      * @param task to be computed.
      * @return the task's execute method return value.
      * @throws RemoteException
@@ -56,31 +56,57 @@ public interface Space extends Remote
     /**
      *
      * @param task to be computed.
-     * @param shared the shared object.
+     * @param shared the job's shared object.
+     * @param remoteEventConsumer receives the job's newer shared objects.
      * @return the task's execute method return value.
      * @throws RemoteException
      */
     ReturnValue compute( Task task, Shared shared, RemoteEventListener remoteEventConsumer ) throws RemoteException;
     
     /**
-     *
-     * @param taskList
+     * Submit a job, without waiting for it to complete.
+     * @param task to be computed.
+     * @return a handle on the job.
      * @throws RemoteException
      */
-    void putAll ( final List<? extends Task> taskList ) throws RemoteException;
+    JobHandle submit( Task task ) throws RemoteException;
     
     /**
-     *
-     * @param computer
-     * @param numWorkerProxies
+     * Submit a job, without waiting for it to complete.
+     * @param task to be computed.
+     * @param shared the job's shared object.
+     * @param remoteEventConsumer receives the job's newer shared objects.
+     * @return a handle on the job.
      * @throws RemoteException
      */
-    void register( final Computer computer, int numWorkerProxies ) throws RemoteException;
-
+    JobHandle submit( Task task, Shared shared, RemoteEventListener remoteEventConsumer ) throws RemoteException;
+    
+    /**
+     * Submit a job, without waiting for it to complete.
+     * @param task to be computed.
+     * @param shared the job's shared object.
+     * @param remoteEventConsumer receives the job's newer shared objects.
+     * @param policy the order in which the job's ready tasks are taken; 
+     * the other methods use SchedulingPolicy.LIFO.
+     * @return a handle on the job.
+     * @throws RemoteException
+     */
+    JobHandle submit( Task task, Shared shared, RemoteEventListener remoteEventConsumer, SchedulingPolicy policy ) 
+            throws RemoteException;
+    
+    /**
+     * Get a handle on an unfinished job, e.g., one a restarted Space recovered from its journal.
+     * @param jobId the job's id.
+     * @return a handle on the job; null, if the Space has no such unfinished job.
+     * @throws RemoteException
+     */
+    JobHandle job( long jobId ) throws RemoteException;
+    
     /**
      *
-     * @return
+     * @param computer
+     * @param numWorkerProxies
      * @throws RemoteException
      */
-    ReturnValue take() throws RemoteException;  
+    void register( final Computer computer, int numWorkerProxies ) throws RemoteException;
 }
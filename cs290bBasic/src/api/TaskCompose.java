@@ -24,32 +24,42 @@
 package api;
 
 import system.Task;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import system.Codecs;
 import system.SpaceImpl;
 
 /**
- *
+ * A task that composes the values of its inputs.
+ * Inputs arrive concurrently, without a monitor: each is set in an atomic 
+ * array, and an atomic countdown of unset inputs selects the one arriving 
+ * input that completes this task.
  * @author Peter Cappello
  * @param <I> input type.
  */
 public abstract class TaskCompose<I> extends Task
 {
-    private int numUnsetArgs;
-    private List<I> args;
+    private AtomicInteger numUnsetArgs;
+    private AtomicReferenceArray<I> argArray;
+    private volatile List<I> args;
     private long decomposeTaskRunTime;
-    private long sumChildT1;
-    private long maxChildTinf;
+    final private AtomicLong sumChildT1   = new AtomicLong();
+    final private AtomicLong maxChildTinf = new AtomicLong();
     
     @Override
     abstract public ReturnValue call();
     
     /**
      *
-     * @return the List of inputs.
+     * @return the List of inputs; null until the last input is set.
      */
-    synchronized public List<I> args() { return args; }
+    public List<I> args() { return args; }
     
     /**
      * Set one of this task's inputs.
@@ -58,35 +68,108 @@ public abstract class TaskCompose<I> extends Task
      * @param space if this is the last input this task is waiting for, put
      * the task in the space's ready task queue; remove it from the waiting task map.
      */
-    synchronized public void arg( final int argNum, final I argValue, SpaceImpl space ) 
+    public void arg( final int argNum, final I argValue, SpaceImpl space ) 
     { 
-        assert numUnsetArgs > 0 &&  argValue != null && args.get( argNum ) == null; 
-        args.set( argNum, argValue );
-        if ( --numUnsetArgs == 0 )
+        if ( arg( argNum, argValue ) )
         {
             space.putReadyTask( this );
             space.removeWaitingTask( id() );
         }
     }
     
-    synchronized public void numArgs( int numArgs )
+    /**
+     * Set one of this task's inputs. An input that already is set is ignored.
+     * @param argNum the index of this input.
+     * @param argValue the value of this input.
+     * @return true if and only if this was the last input this task was waiting for.
+     */
+    public boolean arg( final int argNum, final I argValue ) 
+    { 
+        assert argValue != null;
+        if ( ! argArray.compareAndSet( argNum, null, argValue ) || numUnsetArgs.decrementAndGet() > 0 )
+        {
+            return false;
+        }
+        final List<I> argList = new ArrayList<>( argArray.length() );
+        for ( int i = 0; i < argArray.length(); i++ )
+        {
+            argList.add( argArray.get( i ) );
+        }
+        args = argList;
+        return true;
+    }
+    
+    /**
+     * @param argNum the index of an input.
+     * @return the input; null, if it is unset.
+     */
+    public I arg( final int argNum ) { return argArray.get( argNum ); }
+    
+    public void numArgs( int numArgs )
     {
         assert numArgs >= 0;
-        numUnsetArgs = numArgs;
-        args = Collections.synchronizedList( new ArrayList<>( numArgs ) ) ;
-        for ( int i = 0; i < numArgs; i++ )
+        numUnsetArgs = new AtomicInteger( numArgs );
+        argArray = new AtomicReferenceArray<>( numArgs );
+    }
+    
+    public int numArgs() { return argArray == null ? 0 : argArray.length(); }
+    
+    /**
+     * Write the fields of a TaskCompose. Its inputs are written only once all are set:
+     * the computer that makes a compose task sends it to the Space without them;
+     * the Space may send a ready compose task to a computer to execute.
+     * @param out the stream.
+     * @param compose the compose task.
+     * @throws IOException
+     */
+    public static void write( final ObjectOutput out, final TaskCompose<?> compose ) throws IOException
+    {
+        Codecs.writeVarLong( out, compose.numArgs() );
+        Codecs.writeVarLong( out, compose.decomposeTaskRunTime );
+        final List<?> args = compose.args();
+        out.writeBoolean( args != null );
+        if ( args != null )
+        {
+            for ( Object arg : args )
+            {
+                Codecs.write( out, arg );
+            }
+        }
+        Codecs.writeTask( out, compose );
+    }
+    
+    /**
+     * Read into a TaskCompose the fields written by write.
+     * @param <C> the type of the compose task.
+     * @param in the stream.
+     * @param compose the compose task.
+     * @return the compose task.
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    @SuppressWarnings( "unchecked" )
+    public static <C extends TaskCompose<?>> C read( final ObjectInput in, final C compose ) 
+            throws IOException, ClassNotFoundException
+    {
+        compose.numArgs( (int) Codecs.readVarLong( in ) );
+        compose.decomposeTaskRunTime( Codecs.readVarLong( in ) );
+        if ( in.readBoolean() )
         {
-            args.add( null );
+            for ( int i = 0; i < compose.numArgs(); i++ )
+            {
+                ( (TaskCompose<Object>) compose ).arg( i, Codecs.read( in ) );
+            }
         }
-        assert args.size() == numArgs;
+        Codecs.readTask( in, compose );
+        return compose;
     }
         
     public void decomposeTaskRunTime( long time ) { decomposeTaskRunTime = time; }
     public long decomposeTaskRunTime() { return decomposeTaskRunTime; }
     
-    public long sumChildT1() { return sumChildT1; }
-    public void sumChildT1( long time ) { sumChildT1 +=  time; }
+    public long sumChildT1() { return sumChildT1.get(); }
+    public void sumChildT1( long time ) { sumChildT1.addAndGet( time ); }
     
-    public long maxChildTInf() { return maxChildTinf; }
-    public void maxChildTInf( long time ) { maxChildTinf = maxChildTinf < time ? time : maxChildTinf; }
+    public long maxChildTInf() { return maxChildTinf.get(); }
+    public void maxChildTInf( long time ) { maxChildTinf.accumulateAndGet( time, Math::max ); }
 }
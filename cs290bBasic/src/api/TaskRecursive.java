@@ -26,28 +26,71 @@ import system.Task;
 import system.Return;
 
 /**
- *
+ * A task that either is solved or decomposes, depending on its size.
+ * A task whose size is no greater than its cutoff is solved; its children 
+ * inherit its cutoff. The Space tunes the cutoff of a job's tasks at run time,
+ * from the run times of the tasks that are solved.
  * @author Peter Cappello
  * @param <T> type of the solution to this recursive problem.
  */
 abstract public class TaskRecursive<T> extends Task
 {    
+    private int cutoff;
+    
+    public TaskRecursive() {}
+    
+    /**
+     * @param cutoff the initial cutoff: the size at or below which tasks are solved.
+     */
+    protected TaskRecursive( final int cutoff ) { this.cutoff = cutoff; }
+    
     /**
      * If this task does not decompose, return a ReturnValue object, 
      * otherwise return a ReturnDecomposition object.
      * @return Either a ReturnValue object of a ReturnDecomposition object.
      */
     @Override
-    public Return call() { return isAtomic() ? solve() : divideAndConquer(); }
+    public Return call() 
+    { 
+        if ( isAtomic() || size() <= cutoff )
+        {
+            return solve();
+        }
+        final ReturnDecomposition decomposition = divideAndConquer();
+        if ( decomposition.tasks().isEmpty() )
+        {
+            // every child is pruned: this task's value is that of a pruned task
+            final ReturnValue pruned = pruned( shared() );
+            return pruned != null ? pruned : solve();
+        }
+        for ( Task task : decomposition.tasks() )
+        {
+            if ( task instanceof TaskRecursive )
+            {
+                ( (TaskRecursive<?>) task ).cutoff = cutoff;
+            }
+        }
+        return decomposition; 
+    }
+    
+    public int  cutoff() { return cutoff; }
+    public void cutoff( final int cutoff ) { this.cutoff = cutoff; }
     
     /**
      *
-     * @return true if and only if this task does not decompose.
+     * @return true if and only if this task cannot decompose.
      */
     abstract public boolean isAtomic();
     
     /**
      *
+     * @return the size of this task's problem, e.g., its number of unvisited cities.
+     * The run time of solve grows with it.
+     */
+    abstract public int size();
+    
+    /**
+     * Solve this task sequentially, whatever its size.
      * @return the ReturnValue object.
      */
     abstract public ReturnValue<T> solve();
@@ -0,0 +1,162 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package applications;
+
+import api.HeadlessJobRunner;
+import applications.euclideantsp.SharedTour;
+import applications.euclideantsp.TaskEuclideanTsp;
+import applications.fibonacci.TaskFibonacci;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import system.SchedulingPolicy;
+import util.EuclideanGraph;
+
+/**
+ * Run a list of the applications' jobs, back to back, in one headless JVM,
+ * and write their results as JSON.
+ * <p>
+ * Usage: java applications.BatchJobs [-space DOMAIN] [-out FILE] [-repeat N] JOB...
+ * <ul>
+ * <li>-space the domain name of the Space; by default, a Space runs in this JVM.</li>
+ * <li>-out the file of the results; by default, standard output.</li>
+ * <li>-repeat the times the list is run; by default, once.</li>
+ * <li>JOB is fibonacci:N, or tsp[:POLICY], where POLICY is LIFO, FIFO, or BEST_FIRST,
+ * the default. The TSP instance is TaskEuclideanTsp.CITIES:
+ * set tsp.cities and tsp.seed for a random one.</li>
+ * </ul>
+ * @author Peter Cappello
+ */
+public class BatchJobs 
+{
+    static final private String USAGE = "Usage: java applications.BatchJobs [-space DOMAIN] [-out FILE] [-repeat N] JOB...\n"
+                                      + "\tJOB: fibonacci:N | tsp[:LIFO|FIFO|BEST_FIRST]";
+    
+    public static void main( final String[] args ) throws Exception
+    {
+        final List<String> spaceArgs = new ArrayList<>();
+        final List<String> jobs = new ArrayList<>();
+        String out = null;
+        int numRepeats = 1;
+        try
+        {
+            for ( int i = 0; i < args.length; i++ )
+            {
+                switch ( args[ i ] )
+                {
+                    case "-space":  spaceArgs.add( args[ ++i ] ); break;
+                    case "-out":    out = args[ ++i ]; break;
+                    case "-repeat": numRepeats = Integer.parseInt( args[ ++i ] ); break;
+                    default:        jobs.add( args[ i ] );
+                }
+            }
+            if ( jobs.isEmpty() )
+            {
+                throw new IllegalArgumentException( "No jobs." );
+            }
+            jobs.forEach( BatchJobs::check );
+        }
+        catch ( IllegalArgumentException | ArrayIndexOutOfBoundsException exception )
+        {
+            System.err.println( exception.getMessage() + "\n" + USAGE );
+            System.exit( 1 );
+        }
+        final HeadlessJobRunner runner = new HeadlessJobRunner( spaceArgs.toArray( new String[ 0 ] ) );
+        for ( int repeat = 0; repeat < numRepeats; repeat++ )
+        {
+            for ( String job : jobs )
+            {
+                run( runner, job );
+            }
+        }
+        try ( Writer writer = out == null 
+                ? new OutputStreamWriter( System.out, StandardCharsets.UTF_8 ) 
+                : Files.newBufferedWriter( Paths.get( out ), StandardCharsets.UTF_8 ) )
+        {
+            runner.write( writer );
+        }
+        System.exit( 0 );
+    }
+    
+    /**
+     * @throws IllegalArgumentException if the job is not well formed.
+     */
+    private static void check( final String job )
+    {
+        final String[] fields = job.split( ":" );
+        switch ( fields[ 0 ] )
+        {
+            case "fibonacci":
+                if ( fields.length != 2 )
+                {
+                    throw new IllegalArgumentException( "Fibonacci job without N: " + job );
+                }
+                Integer.parseInt( fields[ 1 ] );
+                return;
+                
+            case "tsp":
+                if ( fields.length > 1 )
+                {
+                    policy( fields[ 1 ] );
+                }
+                return;
+                
+            default:
+                throw new IllegalArgumentException( "Unknown job: " + job );
+        }
+    }
+    
+    private static void run( final HeadlessJobRunner runner, final String job ) throws IOException
+    {
+        final String[] fields = job.split( ":" );
+        if ( fields[ 0 ].equals( "fibonacci" ) )
+        {
+            runner.run( job, new TaskFibonacci( Integer.parseInt( fields[ 1 ] ) ), null, SchedulingPolicy.LIFO );
+            return;
+        }
+        final List<Integer> tour = EuclideanGraph.greedyTour( TaskEuclideanTsp.CITIES );
+        final SharedTour shared = new SharedTour( tour, EuclideanGraph.tourDistance( TaskEuclideanTsp.CITIES, tour ) );
+        final SchedulingPolicy policy = fields.length > 1 ? policy( fields[ 1 ] ) : SchedulingPolicy.BEST_FIRST;
+        runner.run( job, new TaskEuclideanTsp(), shared, policy );
+    }
+    
+    /**
+     * @throws IllegalArgumentException if there is no policy of that name.
+     */
+    private static SchedulingPolicy policy( final String name )
+    {
+        switch ( name )
+        {
+            case "LIFO":       return SchedulingPolicy.LIFO;
+            case "FIFO":       return SchedulingPolicy.FIFO;
+            case "BEST_FIRST": return SchedulingPolicy.BEST_FIRST;
+            default:           throw new IllegalArgumentException( "Unknown scheduling policy: " + name );
+        }
+    }
+}
@@ -23,7 +23,12 @@
  */
 package applications.euclideantsp;
 
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.List;
+import system.Codec;
+import system.Codecs;
 import static util.EuclideanGraph.distance;
 import static util.EuclideanGraph.tourDistance;
 
@@ -34,6 +39,23 @@ import static util.EuclideanGraph.tourDistance;
 final public class LowerBoundPartialTour implements LowerBound
 {
     static final private double[][] CITIES = TaskEuclideanTsp.CITIES;
+    static
+    {
+        Codecs.register( LowerBoundPartialTour.class, new Codec<LowerBoundPartialTour>()
+        {
+            @Override
+            public void write( final ObjectOutput out, final LowerBoundPartialTour lowerBound ) throws IOException 
+            {
+                out.writeDouble( lowerBound.lowerBound );
+            }
+
+            @Override
+            public LowerBoundPartialTour read( final ObjectInput in ) throws IOException 
+            {
+                return new LowerBoundPartialTour( in.readDouble() );
+            }
+        } );
+    }
            final private double lowerBound;
     
     public LowerBoundPartialTour( final List<Integer> partialTour )
@@ -41,6 +63,8 @@ final public class LowerBoundPartialTour implements LowerBound
         lowerBound = tourDistance( CITIES, partialTour );;
     }
     
+    private LowerBoundPartialTour( final double lowerBound ) { this.lowerBound = lowerBound; }
+    
     private LowerBoundPartialTour( final TaskEuclideanTsp parentTask, final Integer newCity )
     {
         // compute lower bound in O(1) time using parent lower bound
@@ -25,6 +25,11 @@ package applications.euclideantsp;
 
 import api.ReturnValue;
 import api.TaskCompose;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import system.Codec;
+import system.Codecs;
 
 /**
  *
@@ -32,6 +37,24 @@ import api.TaskCompose;
  */
 public class MinTour extends TaskCompose<Tour>
 {
+    static
+    {
+        Codecs.register( MinTour.class, new Codec<MinTour>()
+        {
+            @Override
+            public void write( final ObjectOutput out, final MinTour compose ) throws IOException 
+            {
+                TaskCompose.write( out, compose );
+            }
+
+            @Override
+            public MinTour read( final ObjectInput in ) throws IOException, ClassNotFoundException 
+            {
+                return TaskCompose.read( in, new MinTour() );
+            }
+        } );
+    }
+    
     @Override
     public ReturnValue call() 
     {
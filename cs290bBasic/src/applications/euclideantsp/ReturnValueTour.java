@@ -29,11 +29,17 @@ import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Image;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.List;
+import java.util.Locale;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.ImageIcon;
 import javax.swing.JLabel;
+import system.Codec;
+import system.Codecs;
 import system.Task;
 
 /**
@@ -43,9 +49,32 @@ import system.Task;
 public class ReturnValueTour extends ReturnValue<Tour>
 {
     static final public int NUM_PIXELS = 600;
+    static
+    {
+        Codecs.register( ReturnValueTour.class, new Codec<ReturnValueTour>()
+        {
+            @Override
+            public void write( final ObjectOutput out, final ReturnValueTour returnValue ) throws IOException 
+            {
+                ReturnValue.write( out, returnValue );
+            }
+
+            @Override
+            public ReturnValueTour read( final ObjectInput in ) throws IOException, ClassNotFoundException 
+            {
+                return ReturnValue.read( in, ( composeId, composeArgNum, value ) -> 
+                        new ReturnValueTour( composeId, composeArgNum, (Tour) value ) );
+            }
+        } );
+    }
         
     ReturnValueTour( final Task task, final Tour tour ) { super( task, tour ); }
     
+    private ReturnValueTour( final long composeId, final int composeArgNum, final Tour tour ) 
+    { 
+        super( composeId, composeArgNum, tour ); 
+    }
+    
     @Override public JLabel view() 
     {
         List<Integer> cityList = value().tour();
@@ -124,4 +153,15 @@ public class ReturnValueTour extends ReturnValue<Tour>
         final ImageIcon imageIcon = new ImageIcon( image );
         return new JLabel( imageIcon );
     }
+    
+    /**
+     * @return the tour, its cost, and the search statistics of the job: 
+     * nodes of the search tree that were visited, and that were pruned, and the total height of pruned subtrees.
+     */
+    @Override public String json()
+    {
+        return String.format( Locale.ROOT, "{\"tour\":%s,\"cost\":%s,\"numNodes\":%d,\"numPrunedNodes\":%d,\"totalPruneHeights\":%d}", 
+                value().tour().toString().replace( " ", "" ), value().cost(), value().numNodes(), 
+                value().numPrunedNodes(), value().totalPruneHeights() );
+    }
 }
@@ -24,16 +24,27 @@
 package applications.euclideantsp;
 
 import api.Shared;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.List;
+import system.Codecs;
 
 /**
- * 
+ * Externalizable, rather than encoded by a codec: a batch's tasks share 
+ * one SharedTour, which serialization writes once.
  * @author Peter Cappello
  */
-final public class SharedTour extends Shared<SharedTour>
+final public class SharedTour extends Shared<SharedTour> implements Externalizable
 {
-    private final List<Integer> tour;
-    private final double cost;
+    private List<Integer> tour;
+    private double cost;
+    
+    /**
+     * For Externalizable.
+     */
+    public SharedTour() {}
     
     /**
      *
@@ -53,5 +64,23 @@ final public class SharedTour extends Shared<SharedTour>
     
     public double cost() { return cost; }
     
+    @Override public double bound() { return cost; }
+    
+    @Override
+    public void writeExternal( final ObjectOutput out ) throws IOException 
+    {
+        Codecs.writeInts( out, tour );
+        out.writeDouble( cost );
+        Codecs.writeVarLong( out, version() );
+    }
+
+    @Override
+    public void readExternal( final ObjectInput in ) throws IOException 
+    {
+        tour = Codecs.readInts( in );
+        cost = in.readDouble();
+        version( Codecs.readVarLong( in ) );
+    }
+    
     @Override public String toString() { return "\n\tCost: " + cost + "\n\tTour: " + tour; }
 }
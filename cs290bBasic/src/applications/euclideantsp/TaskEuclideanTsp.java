@@ -27,8 +27,14 @@ import api.JobRunner;
 import api.ReturnDecomposition;
 import api.ReturnValue;
 import api.Shared;
+import system.Codec;
+import system.Codecs;
+import system.SchedulingPolicy;
 import system.Task;
 import api.TaskRecursive;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
@@ -43,8 +49,10 @@ import static util.EuclideanGraph.tourDistance;
  */
 public class TaskEuclideanTsp extends TaskRecursive<Tour>
 { 
-    // Configure Job
-    static final public double[][] CITIES =
+    // Configure Job: these cities, unless the system property tsp.cities is set, 
+    // in which case that many cities are placed at random, from the seed tsp.seed.
+    // Tasks refer to cities by index: the computers' JVMs must be given the same properties.
+    static final private double[][] FIXED_CITIES =
     {
 	{ 1, 1 },
 	{ 8, 1 },
@@ -63,6 +71,8 @@ public class TaskEuclideanTsp extends TaskRecursive<Tour>
 //	{ 5, 5 },
 	{ 4, 5 }
     };
+    static final public double[][] CITIES = Integer.getInteger( "tsp.cities" ) == null ? FIXED_CITIES 
+            : EuclideanGraph.generateRandomGraph( Integer.getInteger( "tsp.cities" ), Long.getLong( "tsp.seed", 0 ) );
     static final private String FRAME_TITLE = "Euclidean TSP";
     static final private Task TASK = new TaskEuclideanTsp();
     static final private List<Integer> GREEDY_TOUR = EuclideanGraph.greedyTour( CITIES ) ;
@@ -71,12 +81,43 @@ public class TaskEuclideanTsp extends TaskRecursive<Tour>
     
     public static void main( final String[] args ) throws Exception
     {
-        new JobRunner( FRAME_TITLE, args ).run( TASK, SHARED, new TourListener() );
+        new JobRunner( FRAME_TITLE, args ).run( TASK, SHARED, new TourListener(), SchedulingPolicy.BEST_FIRST );
+    }
+    
+    static
+    {
+        Codecs.register( TaskEuclideanTsp.class, new Codec<TaskEuclideanTsp>()
+        {
+            @Override
+            public void write( final ObjectOutput out, final TaskEuclideanTsp task ) throws IOException 
+            {
+                Codecs.writeInts( out, task.partialTour );
+                Codecs.writeInts( out, task.unvisitedCities );
+                Codecs.write( out, task.lowerBound );
+                out.writeBoolean( task.partialTourContains1 );
+                Codecs.writeVarLong( out, task.numNodes );
+                Codecs.writeVarLong( out, task.numPrunedNodes );
+                Codecs.writeVarLong( out, task.totalPruneHeights );
+                Codecs.writeTask( out, task );
+            }
+
+            @Override
+            public TaskEuclideanTsp read( final ObjectInput in ) throws IOException, ClassNotFoundException 
+            {
+                final TaskEuclideanTsp task = new TaskEuclideanTsp( Codecs.readInts( in ), Codecs.readInts( in ), 
+                        (LowerBound) Codecs.read( in ), in.readBoolean() );
+                task.numNodes          = (int) Codecs.readVarLong( in );
+                task.numPrunedNodes    = (int) Codecs.readVarLong( in );
+                task.totalPruneHeights = (int) Codecs.readVarLong( in );
+                Codecs.readTask( in, task );
+                return task;
+            }
+        } );
     }
     
     static private final Integer ONE = 1;
     static private final Integer TWO = 2;
-    static private final Integer MAX_UNVISITED_CITIES = 12;
+    static private final int     CUTOFF = 12; // initial number of unvisited cities solved sequentially
            private List<Integer> partialTour;
            private List<Integer> unvisitedCities;
            private LowerBound lowerBound;
@@ -88,6 +129,7 @@ public class TaskEuclideanTsp extends TaskRecursive<Tour>
             
     public TaskEuclideanTsp()
     {
+        super( CUTOFF );
         partialTour = new ArrayList<>();
         partialTour.add( 0 );
         this.unvisitedCities = new ArrayList<>( CITIES.length - 1 );
@@ -99,6 +141,15 @@ public class TaskEuclideanTsp extends TaskRecursive<Tour>
         lowerBound = new LowerBoundPartialTour( partialTour );
     }
     
+    private TaskEuclideanTsp( final List<Integer> partialTour, final List<Integer> unvisitedCities, 
+                              final LowerBound lowerBound, final boolean partialTourContains1 )
+    {
+        this.partialTour = partialTour;
+        this.unvisitedCities = unvisitedCities;
+        this.lowerBound = lowerBound;
+        this.partialTourContains1 = partialTourContains1;
+    }
+    
     TaskEuclideanTsp( TaskEuclideanTsp parentTask, Integer newCity, double upperBound )
     {
         if ( ! parentTask.partialTourContains1 && newCity.equals( TWO ) )
@@ -123,7 +174,9 @@ public class TaskEuclideanTsp extends TaskRecursive<Tour>
         }
     }
     
-    @Override public boolean isAtomic() { return unvisitedCities.size() <= MAX_UNVISITED_CITIES; }
+    @Override public boolean isAtomic() { return unvisitedCities.size() <= 1; }
+    
+    @Override public int size() { return unvisitedCities.size(); }
     
     /**
      * Produce a tour of minimum cost from the set of tours, having as its
@@ -131,7 +184,7 @@ public class TaskEuclideanTsp extends TaskRecursive<Tour>
      * followed by a permutation of the unvisited cities.
      * @return a tour of minimum cost.
      */
-     @Override public ReturnValue solve() 
+     @Override public ReturnValue<Tour> solve() 
     {
         final Deque<TaskEuclideanTsp> stack = new ArrayDeque<>();
         stack.push( this );
@@ -193,6 +246,26 @@ public class TaskEuclideanTsp extends TaskRecursive<Tour>
      
     public double cost() { return lowerBound().cost(); }
     
+    /**
+     * Best-first, the partial tour whose lower bound is least is expanded first.
+     * @return the lower bound of the cost of a tour that extends this partial tour.
+     */
+    @Override public double priority() { return cost(); }
+    
+    @Override public double bound() { return cost(); }
+    
+    /**
+     * A pruned partial tour has no tour shorter than the shared tour: 
+     * its value is the shared tour.
+     * @param shared the shared tour.
+     * @return the value of this task.
+     */
+    @Override public ReturnValue pruned( final Shared shared )
+    {
+        final SharedTour sharedTour = (SharedTour) shared;
+        return new ReturnValueTour( this, new Tour( sharedTour.tour(), sharedTour.cost(), 0, 1, partialTour.size() ) );
+    }
+    
     public List<Integer> tour() { return partialTour; }
     
     @Override public String toString()
@@ -23,8 +23,13 @@
  */
 package applications.euclideantsp;
 
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.io.Serializable;
 import java.util.List;
+import system.Codec;
+import system.Codecs;
 
 /**
  *
@@ -32,6 +37,29 @@ import java.util.List;
  */
 public class Tour implements Comparable<Tour>, Serializable
 {
+    static
+    {
+        Codecs.register( Tour.class, new Codec<Tour>()
+        {
+            @Override
+            public void write( final ObjectOutput out, final Tour tour ) throws IOException 
+            {
+                Codecs.writeInts( out, tour.tour );
+                out.writeDouble( tour.cost );
+                Codecs.writeVarLong( out, tour.numNodes );
+                Codecs.writeVarLong( out, tour.numPrunedNodes );
+                Codecs.writeVarLong( out, tour.totalPruneHeights );
+            }
+
+            @Override
+            public Tour read( final ObjectInput in ) throws IOException 
+            {
+                return new Tour( Codecs.readInts( in ), in.readDouble(), 
+                        (int) Codecs.readVarLong( in ), (int) Codecs.readVarLong( in ), (int) Codecs.readVarLong( in ) );
+            }
+        } );
+    }
+    
     final private List<Integer> tour;
     final private double cost;
     final private int numNodes;
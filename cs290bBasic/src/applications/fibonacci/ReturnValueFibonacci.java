@@ -24,8 +24,13 @@
 package applications.fibonacci;
 
 import api.ReturnValue;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import javax.swing.JLabel;
 import javax.swing.SwingConstants;
+import system.Codec;
+import system.Codecs;
 import system.Task;
 
 /**
@@ -34,11 +39,35 @@ import system.Task;
  */
 public class ReturnValueFibonacci extends ReturnValue<Integer>
 {    
+    static
+    {
+        Codecs.register( ReturnValueFibonacci.class, new Codec<ReturnValueFibonacci>()
+        {
+            @Override
+            public void write( final ObjectOutput out, final ReturnValueFibonacci returnValue ) throws IOException 
+            {
+                ReturnValue.write( out, returnValue );
+            }
+
+            @Override
+            public ReturnValueFibonacci read( final ObjectInput in ) throws IOException, ClassNotFoundException 
+            {
+                return ReturnValue.read( in, ( composeId, composeArgNum, value ) -> 
+                        new ReturnValueFibonacci( composeId, composeArgNum, (Integer) value ) );
+            }
+        } );
+    }
+    
     ReturnValueFibonacci( final Task task, Integer value )
     {
         super( task, value );
     }
     
+    private ReturnValueFibonacci( final long composeId, final int composeArgNum, final Integer value )
+    {
+        super( composeId, composeArgNum, value );
+    }
+    
     @Override
     public JLabel view() 
     {
@@ -25,6 +25,11 @@ package applications.fibonacci;
 
 import api.ReturnValue;
 import api.TaskCompose;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import system.Codec;
+import system.Codecs;
 
 /**
  *
@@ -32,6 +37,24 @@ import api.TaskCompose;
  */
 public class SumIntegers extends TaskCompose<Integer>
 {    
+    static
+    {
+        Codecs.register( SumIntegers.class, new Codec<SumIntegers>()
+        {
+            @Override
+            public void write( final ObjectOutput out, final SumIntegers compose ) throws IOException 
+            {
+                TaskCompose.write( out, compose );
+            }
+
+            @Override
+            public SumIntegers read( final ObjectInput in ) throws IOException, ClassNotFoundException 
+            {
+                return TaskCompose.read( in, new SumIntegers() );
+            }
+        } );
+    }
+    
     @Override
     public ReturnValue call() 
     {
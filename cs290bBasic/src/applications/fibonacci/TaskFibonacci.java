@@ -26,8 +26,13 @@ package applications.fibonacci;
 import api.JobRunner;
 import api.ReturnDecomposition;
 import api.ReturnValue;
+import system.Codec;
+import system.Codecs;
 import system.Task;
 import api.TaskRecursive;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -47,6 +52,27 @@ public class TaskFibonacci extends TaskRecursive<Integer>
         new JobRunner( FRAME_TITLE, args ).run( TASK );
     }
     
+    static
+    {
+        Codecs.register( TaskFibonacci.class, new Codec<TaskFibonacci>()
+        {
+            @Override
+            public void write( final ObjectOutput out, final TaskFibonacci task ) throws IOException 
+            {
+                Codecs.writeVarLong( out, task.n );
+                Codecs.writeTask( out, task );
+            }
+
+            @Override
+            public TaskFibonacci read( final ObjectInput in ) throws IOException, ClassNotFoundException 
+            {
+                final TaskFibonacci task = new TaskFibonacci( (int) Codecs.readVarLong( in ) );
+                Codecs.readTask( in, task );
+                return task;
+            }
+        } );
+    }
+    
     final private int n;
             
     public TaskFibonacci( int n ) 
@@ -62,7 +88,12 @@ public class TaskFibonacci extends TaskRecursive<Integer>
     public boolean isAtomic() { return n < 2; }
 
     @Override
-    public ReturnValue<Integer> solve() { return new ReturnValueFibonacci( this, n ); }
+    public int size() { return n; }
+
+    @Override
+    public ReturnValue<Integer> solve() { return new ReturnValueFibonacci( this, fibonacci( n ) ); }
+    
+    static private int fibonacci( final int n ) { return n < 2 ? n : fibonacci( n - 1 ) + fibonacci( n - 2 ); }
 
     @Override
     public ReturnDecomposition divideAndConquer() 
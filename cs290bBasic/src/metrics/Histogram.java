@@ -0,0 +1,87 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non-negative values, e.g., latencies in nanoseconds or sizes in bytes,
+ * in buckets of logarithmic width: bucket i counts the values of bit length i, 
+ * i.e., in [ 2^(i-1), 2^i ). Recording a value allocates nothing.
+ * A quantile is the upper bound of the bucket holding it: within a factor of 2.
+ * @author Peter Cappello
+ */
+final public class Histogram 
+{
+    static final private int NUM_BUCKETS = Long.SIZE;
+    
+    final private AtomicLongArray buckets = new AtomicLongArray( NUM_BUCKETS );
+    final private AtomicLong count = new AtomicLong();
+    final private AtomicLong sum   = new AtomicLong();
+    final private AtomicLong max   = new AtomicLong();
+    
+    /**
+     * @param value the value; a negative value is recorded as 0.
+     */
+    public void record( final long value )
+    {
+        final long v = Math.max( 0, value );
+        buckets.incrementAndGet( Long.SIZE - Long.numberOfLeadingZeros( v ) );
+        count.incrementAndGet();
+        sum.addAndGet( v );
+        max.accumulateAndGet( v, Math::max );
+    }
+    
+    public long count() { return count.get(); }
+    
+    public long sum() { return sum.get(); }
+    
+    public long max() { return max.get(); }
+    
+    public long mean() 
+    { 
+        final long n = count.get();
+        return n == 0 ? 0 : sum.get() / n; 
+    }
+    
+    /**
+     * @param q the quantile, in [0, 1].
+     * @return an upper bound on the q quantile of the recorded values; 0, if none is recorded.
+     */
+    public long quantile( final double q )
+    {
+        final long rank = (long) Math.ceil( q * count.get() );
+        long cumulative = 0;
+        for ( int i = 0; i < NUM_BUCKETS; i++ )
+        {
+            cumulative += buckets.get( i );
+            if ( cumulative >= rank && cumulative > 0 )
+            {
+                return Math.min( max.get(), i == 0 ? 0 : ( 1L << i ) - 1 );
+            }
+        }
+        return max.get();
+    }
+}
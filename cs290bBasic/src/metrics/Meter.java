@@ -0,0 +1,78 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The rate of events, e.g., tasks per second: an exponentially weighted moving
+ * average, with a time constant of one minute, of the rate in each 5 second interval.
+ * The average is updated lazily, when an event is marked or the rate is read.
+ * @author Peter Cappello
+ */
+final public class Meter 
+{
+    static final private long   INTERVAL = TimeUnit.SECONDS.toNanos( 5 );
+    static final private double WEIGHT   = 1 - Math.exp( -5.0 / 60 ); // weight of newest interval
+    
+    final private AtomicLong count     = new AtomicLong();
+    final private AtomicLong uncounted = new AtomicLong(); // events in the current interval
+    final private AtomicLong lastTick  = new AtomicLong( System.nanoTime() );
+    private volatile double rate = -1; // events per nanosecond; -1, until the first interval ends
+    
+    public void mark( final long n )
+    {
+        tick();
+        count.addAndGet( n );
+        uncounted.addAndGet( n );
+    }
+    
+    public long count() { return count.get(); }
+    
+    /**
+     * @return the mean number of events per second.
+     */
+    public double rate()
+    {
+        tick();
+        return Math.max( 0, rate ) * TimeUnit.SECONDS.toNanos( 1 );
+    }
+    
+    private void tick()
+    {
+        final long last = lastTick.get();
+        final long age = System.nanoTime() - last;
+        if ( age < INTERVAL || ! lastTick.compareAndSet( last, last + age - age % INTERVAL ) )
+        {
+            return;
+        }
+        double intervalRate = (double) uncounted.getAndSet( 0 ) / INTERVAL;
+        for ( long i = age / INTERVAL; i > 0; i-- )
+        {
+            rate = rate < 0 ? intervalRate : rate + WEIGHT * ( intervalRate - rate );
+            intervalRate = 0; // no events were marked in the later intervals
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * The metrics of one component, e.g., a Space or a Computer: 
+ * counters, gauges, histograms, and meters, by name.
+ * A registry is an MBean, named cs290bBasic:type=Metrics,name=its name, whose 
+ * attributes are its metrics: a histogram's are its count, mean, max, and 
+ * 50th, 90th, and 99th percentiles; a meter's are its count and rate.
+ * If the system property metrics.port is set, every registry of the JVM also is
+ * served as text on that port of localhost: see MetricsEndpoint.
+ * @author Peter Cappello
+ */
+final public class Metrics implements DynamicMBean
+{
+    static final private Map<String, Metrics> REGISTRIES = new ConcurrentSkipListMap<>(); // name -> registry
+    static final private String[] HISTOGRAM_ATTRIBUTES = { "count", "mean", "max", "p50", "p90", "p99" };
+    
+    final private String name;
+    final private Map<String, Object> metrics = new ConcurrentSkipListMap<>(); // name -> Counter, Histogram, Meter, or LongSupplier
+    
+    /**
+     * @param name the registry's name. It replaces a registry of its JVM that has the same name, 
+     * e.g., that of an earlier Space in the JVM.
+     */
+    public Metrics( final String name )
+    {
+        this.name = name;
+        synchronized ( REGISTRIES )
+        {
+            REGISTRIES.put( name, this );
+            try 
+            { 
+                final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                final ObjectName objectName = objectName();
+                if ( server.isRegistered( objectName ) )
+                {
+                    server.unregisterMBean( objectName );
+                }
+                server.registerMBean( this, objectName ); 
+            }
+            catch ( JMException ex ) 
+            {
+                Logger.getLogger( getClass().getName() )
+                      .log( Level.WARNING, "Metrics " + name + ": not registered with JMX.", ex );
+            }
+        }
+        MetricsEndpoint.startIfConfigured();
+    }
+    
+    public String name() { return name; }
+    
+    /**
+     * Unregister this registry, unless a newer one of the same name replaced it.
+     */
+    public void close()
+    {
+        synchronized ( REGISTRIES )
+        {
+            if ( ! REGISTRIES.remove( name, this ) )
+            {
+                return;
+            }
+            try { ManagementFactory.getPlatformMBeanServer().unregisterMBean( objectName() ); }
+            catch ( JMException ex ) 
+            {
+                Logger.getLogger( getClass().getName() )
+                      .log( Level.WARNING, "Metrics " + name + ": not unregistered from JMX.", ex );
+            }
+        }
+    }
+    
+    private ObjectName objectName() throws MalformedObjectNameException
+    {
+        return new ObjectName( "cs290bBasic:type=Metrics,name=" + name );
+    }
+    
+    public Counter counter( final String name ) { return (Counter) metrics.computeIfAbsent( name, key -> new Counter() ); }
+    
+    public Histogram histogram( final String name ) { return (Histogram) metrics.computeIfAbsent( name, key -> new Histogram() ); }
+    
+    public Meter meter( final String name ) { return (Meter) metrics.computeIfAbsent( name, key -> new Meter() ); }
+    
+    /**
+     * @param name the gauge's name.
+     * @param gauge reads the gauge's current value, e.g., a queue's size.
+     */
+    public void gauge( final String name, final LongSupplier gauge ) { metrics.put( name, gauge ); }
+    
+    /**
+     * Remove the metrics whose names start with a prefix, e.g., those of a computer that left.
+     * @param prefix the prefix.
+     */
+    public void remove( final String prefix ) { metrics.keySet().removeIf( key -> key.startsWith( prefix ) ); }
+    
+    /**
+     * @return the registries of this JVM, by name.
+     */
+    static Collection<Metrics> registries() { return REGISTRIES.values(); }
+    
+    /**
+     * Append this registry's metrics as text: one "registry.metric value" line per attribute.
+     * @param text the text.
+     */
+    void write( final StringBuilder text )
+    {
+        for ( String attribute : attributes() )
+        {
+            text.append( name ).append( '.' ).append( attribute ).append( ' ' ).append( value( attribute ) ).append( '\n' );
+        }
+    }
+    
+    private List<String> attributes()
+    {
+        final List<String> attributes = new ArrayList<>();
+        metrics.forEach( ( metricName, metric ) -> 
+        {
+            if ( metric instanceof Histogram )
+            {
+                for ( String attribute : HISTOGRAM_ATTRIBUTES )
+                {
+                    attributes.add( metricName + '.' + attribute );
+                }
+            }
+            else if ( metric instanceof Meter )
+            {
+                attributes.add( metricName + ".count" );
+                attributes.add( metricName + ".rate" );
+            }
+            else
+            {
+                attributes.add( metricName );
+            }
+        } );
+        return attributes;
+    }
+    
+    /**
+     * @return the value of an attribute; null, if there is none.
+     */
+    private Object value( final String attribute )
+    {
+        final Object metric = metrics.get( attribute );
+        if ( metric instanceof Counter )
+        {
+            return ( (Counter) metric ).get();
+        }
+        if ( metric instanceof LongSupplier )
+        {
+            return ( (LongSupplier) metric ).getAsLong();
+        }
+        final int dot = attribute.lastIndexOf( '.' );
+        if ( dot < 0 )
+        {
+            return null;
+        }
+        final Object parent = metrics.get( attribute.substring( 0, dot ) );
+        final String part = attribute.substring( dot + 1 );
+        if ( parent instanceof Histogram )
+        {
+            final Histogram histogram = (Histogram) parent;
+            switch ( part )
+            {
+                case "count": return histogram.count();
+                case "mean":  return histogram.mean();
+                case "max":   return histogram.max();
+                case "p50":   return histogram.quantile( 0.50 );
+                case "p90":   return histogram.quantile( 0.90 );
+                case "p99":   return histogram.quantile( 0.99 );
+                default:      return null;
+            }
+        }
+        if ( parent instanceof Meter )
+        {
+            final Meter meter = (Meter) parent;
+            switch ( part )
+            {
+                case "count": return meter.count();
+                case "rate":  return meter.rate();
+                default:      return null;
+            }
+        }
+        return null;
+    }
+    
+    @Override
+    public Object getAttribute( final String attribute ) throws AttributeNotFoundException 
+    {
+        final Object value = value( attribute );
+        if ( value == null )
+        {
+            throw new AttributeNotFoundException( attribute );
+        }
+        return value;
+    }
+
+    @Override
+    public AttributeList getAttributes( final String[] attributes ) 
+    {
+        final AttributeList list = new AttributeList();
+        for ( String attribute : attributes )
+        {
+            final Object value = value( attribute );
+            if ( value != null )
+            {
+                list.add( new Attribute( attribute, value ) );
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() 
+    {
+        final List<MBeanAttributeInfo> infos = new ArrayList<>();
+        for ( String attribute : attributes() )
+        {
+            final Object value = value( attribute );
+            infos.add( new MBeanAttributeInfo( attribute, value instanceof Double ? "double" : "long", 
+                                               attribute, true, false, false ) );
+        }
+        return new MBeanInfo( getClass().getName(), "Metrics of " + name, 
+                              infos.toArray( new MBeanAttributeInfo[ infos.size() ] ), null, null, null );
+    }
+
+    @Override
+    public void setAttribute( final Attribute attribute ) throws AttributeNotFoundException 
+    { 
+        throw new AttributeNotFoundException( "Metrics are read-only: " + attribute.getName() ); 
+    }
+
+    @Override
+    public AttributeList setAttributes( final AttributeList attributes ) { return new AttributeList(); }
+
+    @Override
+    public Object invoke( final String actionName, final Object[] params, final String[] signature ) 
+    { 
+        throw new UnsupportedOperationException( actionName ); 
+    }
+}
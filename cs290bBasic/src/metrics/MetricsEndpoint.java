@@ -0,0 +1,84 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package metrics;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Serves the metrics of every registry of the JVM as text, at 
+ * http://localhost:port/metrics, where port is the system property metrics.port.
+ * It listens only on the loopback interface.
+ * @author Peter Cappello
+ */
+final class MetricsEndpoint 
+{
+    static final private String PORT_PROPERTY = "metrics.port";
+    static private HttpServer server;
+    
+    private MetricsEndpoint() {}
+    
+    /**
+     * Start the endpoint, unless it is started already, or metrics.port is unset.
+     */
+    static synchronized void startIfConfigured()
+    {
+        final Integer port = Integer.getInteger( PORT_PROPERTY );
+        if ( server != null || port == null )
+        {
+            return;
+        }
+        try 
+        {
+            server = HttpServer.create( new InetSocketAddress( InetAddress.getLoopbackAddress(), port ), 0 );
+            server.createContext( "/metrics", exchange -> 
+            {
+                final StringBuilder text = new StringBuilder();
+                for ( Metrics metrics : Metrics.registries() )
+                {
+                    metrics.write( text );
+                }
+                final byte[] bytes = text.toString().getBytes( StandardCharsets.UTF_8 );
+                exchange.getResponseHeaders().set( "Content-Type", "text/plain; charset=utf-8" );
+                exchange.sendResponseHeaders( 200, bytes.length );
+                try ( OutputStream body = exchange.getResponseBody() ) { body.write( bytes ); }
+            } );
+            server.setExecutor( null );
+            server.start();
+            Logger.getLogger( MetricsEndpoint.class.getName() )
+                  .log( Level.INFO, "Metrics: http://localhost:{0}/metrics", String.valueOf( server.getAddress().getPort() ) );
+        }
+        catch ( IOException ex ) 
+        {
+            Logger.getLogger( MetricsEndpoint.class.getName() )
+                  .log( Level.WARNING, "Metrics: endpoint not started on port " + port + ".", ex );
+        }
+    }
+}
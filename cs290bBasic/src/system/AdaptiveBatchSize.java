@@ -0,0 +1,73 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package system;
+
+/**
+ * The number of tasks to send a computer in one remote call.
+ * The size is chosen so that the round trip overhead of a call is amortized
+ * over enough task run time: 
+ * batch size = ceiling( round trip overhead / mean task run time ).
+ * Tiny tasks thus get large batches, while long tasks go one at a time.
+ * Both measures are exponentially weighted moving averages.
+ * @author Peter Cappello
+ */
+final class AdaptiveBatchSize 
+{
+    static final public int    MAX_BATCH_SIZE = 64;
+    static final private double WEIGHT = 0.25; // weight of newest measurement
+    
+    private double meanOverhead;  // nanoseconds per call not spent running tasks
+    private double meanTaskRunTime; // nanoseconds per task
+    private int batchSize = 1;
+    
+    /**
+     * @return the number of tasks to send in the next call.
+     */
+    synchronized int get() { return batchSize; }
+    
+    /**
+     * Update the batch size with the measures of a completed remote call.
+     * @param numTasks the number of tasks in the call's batch.
+     * @param elapsedTime the call's elapsed time, in nanoseconds.
+     * @param sumTaskRunTime the sum of the batch's task run times, in nanoseconds.
+     */
+    synchronized void update( final int numTasks, final long elapsedTime, final long sumTaskRunTime )
+    {
+        assert numTasks > 0;
+        final long overhead = Math.max( 0, elapsedTime - sumTaskRunTime );
+        final double taskRunTime = (double) sumTaskRunTime / numTasks;
+        if ( meanTaskRunTime == 0 )
+        {
+            meanOverhead = overhead;
+            meanTaskRunTime = taskRunTime;
+        }
+        else
+        {
+            meanOverhead    = WEIGHT * overhead    + ( 1 - WEIGHT ) * meanOverhead;
+            meanTaskRunTime = WEIGHT * taskRunTime + ( 1 - WEIGHT ) * meanTaskRunTime;
+        }
+        final double size = Math.ceil( meanOverhead / Math.max( 1.0, meanTaskRunTime ) );
+        batchSize = (int) Math.max( 1, Math.min( MAX_BATCH_SIZE, size ) );
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package system;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The cutoff of recursive tasks: the size at or below which a task
+ * is solved, rather than decomposed.
+ * The cutoff is chosen so that the mean task run time is close to a target: 
+ * at least TARGET_TASK_TIME, and at least TARGET_OVERHEAD_RATIO times the 
+ * dispatch overhead per task. Once MIN_TASKS are measured at a cutoff,
+ * it moves a step towards the target, unless the mean measured at that 
+ * step is further from it. The step doubles with each move in the same 
+ * direction, and is 1 otherwise. 
+ * Both measures are exponentially weighted moving averages.
+ * @author Peter Cappello
+ */
+final class AdaptiveGranularity 
+{
+    static final private long   TARGET_TASK_TIME = TimeUnit.MILLISECONDS.toNanos( Long.getLong( "space.targetTaskTime", 10 ) );
+    static final private double TARGET_OVERHEAD_RATIO = 10;
+    static final private int    MIN_TASKS = 32;
+    static final private double WEIGHT = 0.25; // weight of newest measurement
+    
+    final private Map<Integer, Double> meanTaskRunTimes = new HashMap<>(); // cutoff -> nanoseconds
+    private double meanOverhead; // nanoseconds per task
+    private int cutoff;
+    private int step = 1;
+    private int direction; // of the last move: 1, up; -1, down; 0, none
+    private long numTasks; // measured at the cutoff since it was last considered
+    
+    /**
+     * @param cutoff the initial cutoff.
+     */
+    AdaptiveGranularity( final int cutoff ) { this.cutoff = cutoff; }
+    
+    /**
+     * @return the cutoff of tasks yet to be dispatched.
+     */
+    synchronized int get() { return cutoff; }
+    
+    /**
+     * Update the dispatch overhead with a task of a completed remote call.
+     * @param overhead the call's overhead per task, in nanoseconds.
+     */
+    synchronized void overhead( final long overhead )
+    {
+        meanOverhead = meanOverhead == 0 ? overhead : WEIGHT * overhead + ( 1 - WEIGHT ) * meanOverhead;
+    }
+    
+    /**
+     * Update the cutoff with the mean run time of some tasks.
+     * @param cutoff the cutoff with which the tasks were executed.
+     * @param numTasks the number of tasks.
+     * @param taskRunTime their mean run time, in nanoseconds.
+     */
+    synchronized void taskRunTime( final int cutoff, final int numTasks, final long taskRunTime )
+    {
+        if ( cutoff != this.cutoff )
+        {
+            return;
+        }
+        final Double mean = meanTaskRunTimes.get( cutoff );
+        meanTaskRunTimes.put( cutoff, mean == null ? taskRunTime : WEIGHT * taskRunTime + ( 1 - WEIGHT ) * mean );
+        this.numTasks += numTasks;
+        if ( this.numTasks < MIN_TASKS )
+        {
+            return;
+        }
+        this.numTasks = 0;
+        final double target = Math.max( TARGET_TASK_TIME, TARGET_OVERHEAD_RATIO * meanOverhead );
+        final int nextDirection = meanTaskRunTimes.get( cutoff ) < target ? 1 : -1;
+        step = nextDirection == direction ? 2 * step : 1;
+        final int next = Math.max( 0, cutoff + nextDirection * step );
+        direction = 0;
+        if ( next != cutoff && distance( next, target ) < distance( cutoff, target ) )
+        {
+            this.cutoff = next;
+            direction = nextDirection;
+            Logger.getLogger( getClass().getName() )
+                  .log( Level.FINE, "Cutoff {0} -> {1}: mean task run time {2}us, target {3}us.", 
+                        new Object[]{ cutoff, next, (long) ( meanTaskRunTimes.get( cutoff ) / 1000 ), (long) ( target / 1000 ) } );
+        }
+    }
+    
+    /**
+     * @return how far, by ratio, the mean task run time at a cutoff is from the target;
+     * 0, if it is unmeasured, so that it is worth a try.
+     */
+    private double distance( final int cutoff, final double target )
+    {
+        final Double mean = meanTaskRunTimes.get( cutoff );
+        return mean == null ? 0 : Math.abs( Math.log( Math.max( 1, mean ) / target ) );
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package system;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * Encodes objects of one class into a compact binary form, and decodes them.
+ * A codec is registered for its class with Codecs.register.
+ * @author Peter Cappello
+ * @param <T> the type of the encoded objects.
+ */
+public interface Codec<T>
+{
+    /**
+     * Encode an object.
+     * @param out the stream to which the object is written.
+     * @param value the object; not null.
+     * @throws IOException
+     */
+    void write( ObjectOutput out, T value ) throws IOException;
+    
+    /**
+     * Decode an object.
+     * @param in the stream from which the object is read.
+     * @return the object.
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    T read( ObjectInput in ) throws IOException, ClassNotFoundException;
+}
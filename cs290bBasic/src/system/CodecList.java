@@ -0,0 +1,118 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package system;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicLong;
+import metrics.Histogram;
+import metrics.Metrics;
+
+/**
+ * A list whose elements are written with their codecs, when it is serialized.
+ * The Space and its computers pass batches of Tasks and Returns in these.
+ * The encoded size of every SAMPLE_PERIOD-th list written is recorded, 
+ * whatever the transport: RMI streams do not tell how many bytes they wrote.
+ * @author Peter Cappello
+ * @param <E> the element type.
+ */
+final public class CodecList<E> extends AbstractList<E> implements Externalizable, RandomAccess
+{
+    static final private long serialVersionUID = 1L;
+    static final private int SAMPLE_PERIOD = Math.max( 1, Integer.getInteger( "codec.sizeSamplePeriod", 64 ) );
+    static final private AtomicLong NUM_WRITES = new AtomicLong();
+    static final private Histogram BATCH_SIZES = new Metrics( "codec" ).histogram( "batchSize" ); // bytes, encoded
+    
+    private List<E> list;
+    
+    /**
+     * For Externalizable.
+     */
+    public CodecList() { list = new ArrayList<>(); }
+    
+    /**
+     * @param list the elements; not copied.
+     */
+    public CodecList( final List<E> list ) { this.list = list; }
+
+    @Override public E get( final int index ) { return list.get( index ); }
+
+    @Override public int size() { return list.size(); }
+
+    @Override
+    public void writeExternal( final ObjectOutput out ) throws IOException 
+    {
+        if ( NUM_WRITES.getAndIncrement() % SAMPLE_PERIOD == 0 )
+        {
+            final CountingOutputStream counter = new CountingOutputStream();
+            try ( ObjectOutputStream sample = new ObjectOutputStream( counter ) ) 
+            { 
+                writeElements( sample ); 
+            }
+            BATCH_SIZES.record( counter.count );
+        }
+        writeElements( out );
+    }
+    
+    private void writeElements( final ObjectOutput out ) throws IOException 
+    {
+        Codecs.writeVarLong( out, list.size() );
+        for ( E element : list )
+        {
+            Codecs.write( out, element );
+        }
+    }
+
+    @Override
+    @SuppressWarnings( "unchecked" )
+    public void readExternal( final ObjectInput in ) throws IOException, ClassNotFoundException 
+    {
+        final int size = (int) Codecs.readVarLong( in );
+        list = new ArrayList<>( size );
+        for ( int i = 0; i < size; i++ )
+        {
+            list.add( (E) Codecs.read( in ) );
+        }
+    }
+    
+    /**
+     * An output stream that counts its bytes, and discards them.
+     */
+    static final private class CountingOutputStream extends OutputStream
+    {
+        private long count;
+        
+        @Override public void write( final int b ) { count++; }
+        
+        @Override public void write( final byte[] bytes, final int offset, final int length ) { count += length; }
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package system;
+
+import api.Shared;
+import api.TaskRecursive;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The registry of codecs, and the primitives from which codecs are written.
+ * An object whose class has a registered codec is written as its class, 
+ * followed by its codec's encoding; any other object is written with
+ * Java serialization. A class typically registers its codec in its static
+ * initializer: a reader that meets a class without a codec initializes it.
+ * <p>
+ * By convention, the codec of a Task or Return subclass writes the subclass's 
+ * fields, then the framework's fields, with writeTask or writeReturn.
+ * @author Peter Cappello
+ */
+final public class Codecs 
+{
+    static final private byte NULL       = 0;
+    static final private byte SERIALIZED = 1;
+    static final private byte ENCODED    = 2;
+    static final private Map<Class<?>, Codec<?>> CODECS = new ConcurrentHashMap<>();
+    static
+    {
+        register( Integer.class, new Codec<Integer>()
+        {
+            @Override public void write( final ObjectOutput out, final Integer value ) throws IOException { writeVarLong( out, value ); }
+            @Override public Integer read( final ObjectInput in ) throws IOException { return (int) readVarLong( in ); }
+        } );
+        register( Long.class, new Codec<Long>()
+        {
+            @Override public void write( final ObjectOutput out, final Long value ) throws IOException { writeVarLong( out, value ); }
+            @Override public Long read( final ObjectInput in ) throws IOException { return readVarLong( in ); }
+        } );
+        register( Double.class, new Codec<Double>()
+        {
+            @Override public void write( final ObjectOutput out, final Double value ) throws IOException { out.writeDouble( value ); }
+            @Override public Double read( final ObjectInput in ) throws IOException { return in.readDouble(); }
+        } );
+    }
+    
+    private Codecs() {}
+    
+    /**
+     * Register a codec for a class. Subclasses of the class are not encoded by it.
+     * @param <T> the class's type.
+     * @param type the class.
+     * @param codec the codec of the class's objects.
+     */
+    public static <T> void register( final Class<T> type, final Codec<T> codec ) { CODECS.put( type, codec ); }
+    
+    /**
+     * Write an object: encoded, if its class has a codec, otherwise serialized.
+     * @param out the stream.
+     * @param value the object; may be null.
+     * @throws IOException
+     */
+    @SuppressWarnings( "unchecked" )
+    public static void write( final ObjectOutput out, final Object value ) throws IOException
+    {
+        if ( value == null )
+        {
+            out.writeByte( NULL );
+            return;
+        }
+        final Codec<Object> codec = (Codec<Object>) CODECS.get( value.getClass() );
+        if ( codec == null )
+        {
+            out.writeByte( SERIALIZED );
+            out.writeObject( value );
+            return;
+        }
+        out.writeByte( ENCODED );
+        out.writeObject( value.getClass() ); // after its first occurrence in a stream, a 5 byte handle
+        codec.write( out, value );
+    }
+    
+    /**
+     * Read an object written by write.
+     * @param in the stream.
+     * @return the object; may be null.
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    public static Object read( final ObjectInput in ) throws IOException, ClassNotFoundException
+    {
+        switch ( in.readByte() )
+        {
+            case NULL:       return null;
+            case SERIALIZED: return in.readObject();
+            case ENCODED:    return codec( (Class<?>) in.readObject() ).read( in );
+            default: throw new InvalidClassException( "Unknown codec tag." );
+        }
+    }
+    
+    private static Codec<?> codec( final Class<?> type ) throws IOException, ClassNotFoundException
+    {
+        Codec<?> codec = CODECS.get( type );
+        if ( codec == null )
+        {
+            Class.forName( type.getName(), true, type.getClassLoader() ); // runs its registration
+            codec = CODECS.get( type );
+            if ( codec == null )
+            {
+                throw new InvalidClassException( type.getName(), "No codec is registered." );
+            }
+        }
+        return codec;
+    }
+    
+    /**
+     * Write the framework's fields of a Task. The ids of a task are close
+     * to its compose task's id, and so are written as differences from it.
+     * The shared object is not written: the Space sends a computer each version 
+     * of a job's shared object once, apart from its tasks. A recursive task's cutoff follows.
+     * @param out the stream.
+     * @param task the task.
+     * @throws IOException
+     */
+    public static void writeTask( final ObjectOutput out, final Task task ) throws IOException
+    {
+        out.writeLong( task.composeId() );
+        writeVarLong( out, task.id()    - task.composeId() );
+        writeVarLong( out, task.jobId() - task.composeId() );
+        writeVarLong( out, task.composeArgNum() );
+        if ( task instanceof TaskRecursive )
+        {
+            writeVarLong( out, ( (TaskRecursive<?>) task ).cutoff() );
+        }
+    }
+    
+    /**
+     * Read the framework's fields of a Task, written by writeTask.
+     * @param in the stream.
+     * @param task the task whose fields are read.
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    public static void readTask( final ObjectInput in, final Task task ) throws IOException, ClassNotFoundException
+    {
+        final long composeId = in.readLong();
+        task.composeId( composeId );
+        task.id(    composeId + readVarLong( in ) );
+        task.jobId( composeId + readVarLong( in ) );
+        task.composeArgNum( (int) readVarLong( in ) );
+        if ( task instanceof TaskRecursive )
+        {
+            ( (TaskRecursive<?>) task ).cutoff( (int) readVarLong( in ) );
+        }
+    }
+    
+    /**
+     * Write the framework's fields of a Return.
+     * @param out the stream.
+     * @param result the Return.
+     * @throws IOException
+     */
+    public static void writeReturn( final ObjectOutput out, final Return result ) throws IOException
+    {
+        out.writeLong( result.jobId() );
+        writeVarLong( out, result.taskRunTime() );
+        writeVarLong( out, result.t1() );
+        writeVarLong( out, result.tInf() );
+        writeVarLong( out, result.numTasks() );
+        out.writeObject( result.shared() );
+    }
+    
+    /**
+     * Read the framework's fields of a Return, written by writeReturn.
+     * @param in the stream.
+     * @param result the Return whose fields are read.
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    public static void readReturn( final ObjectInput in, final Return result ) throws IOException, ClassNotFoundException
+    {
+        result.jobId( in.readLong() );
+        result.taskRunTime( readVarLong( in ) );
+        result.t1(   readVarLong( in ) );
+        result.tInf( readVarLong( in ) );
+        result.numTasks( (int) readVarLong( in ) );
+        result.shared( (Shared) in.readObject() );
+    }
+    
+    /**
+     * Write a long in 1 to 10 bytes: small magnitudes, of either sign, take few bytes.
+     * @param out the stream.
+     * @param value the long.
+     * @throws IOException
+     */
+    public static void writeVarLong( final ObjectOutput out, final long value ) throws IOException
+    {
+        long zigZag = ( value << 1 ) ^ ( value >> 63 );
+        while ( ( zigZag & ~0x7FL ) != 0 )
+        {
+            out.writeByte( (int) ( zigZag & 0x7F ) | 0x80 );
+            zigZag >>>= 7;
+        }
+        out.writeByte( (int) zigZag );
+    }
+    
+    /**
+     * Read a long written by writeVarLong.
+     * @param in the stream.
+     * @return the long.
+     * @throws IOException
+     */
+    public static long readVarLong( final ObjectInput in ) throws IOException
+    {
+        long zigZag = 0;
+        for ( int shift = 0; ; shift += 7 )
+        {
+            final int b = in.readUnsignedByte();
+            zigZag |= (long) ( b & 0x7F ) << shift;
+            if ( ( b & 0x80 ) == 0 )
+            {
+                return ( zigZag >>> 1 ) ^ -( zigZag & 1 );
+            }
+        }
+    }
+    
+    /**
+     * Write a list of Integers, none of which is null.
+     * @param out the stream.
+     * @param list the list.
+     * @throws IOException
+     */
+    public static void writeInts( final ObjectOutput out, final List<Integer> list ) throws IOException
+    {
+        writeVarLong( out, list.size() );
+        for ( Integer i : list )
+        {
+            writeVarLong( out, i );
+        }
+    }
+    
+    /**
+     * Read a list of Integers written by writeInts.
+     * @param in the stream.
+     * @return the list.
+     * @throws IOException
+     */
+    public static List<Integer> readInts( final ObjectInput in ) throws IOException
+    {
+        final int size = (int) readVarLong( in );
+        final List<Integer> list = new ArrayList<>( size );
+        for ( int i = 0; i < size; i++ )
+        {
+            list.add( (int) readVarLong( in ) );
+        }
+        return list;
+    }
+}
@@ -26,6 +26,7 @@ package system;
 import api.Shared;
 import java.rmi.Remote;
 import java.rmi.RemoteException;
+import java.util.List;
 
 /**
  *
@@ -42,4 +43,42 @@ public interface Computer extends Remote
      * @throws RemoteException
      */
     public Return execute( final Task task, final Shared shared ) throws RemoteException; 
+    
+    /**
+     * Execute a batch of Tasks asynchronously: return once the batch is queued, 
+     * Tasks do not carry their job's Shared object: the Space first gives it to 
+     * this Computer, with shared.
+     * Each Task carries the Shared object of its job.
+     * @param batchId identifies the batch to the listener.
+     * @param tasks
+     * @param spaceLoad the load of the Space: whether the children of 
+     * decomposing tasks may, or must, be executed locally.
+     * @param listener accepts the Task return values, in the order of their Tasks.
+     * @throws RemoteException
+     */
+    public void executeAsync( final long batchId, final List<Task> tasks, final SpaceLoad spaceLoad, 
+                              final ReturnListener listener ) throws RemoteException; 
+    
+    /**
+     * Give this Computer a newer version of a job's shared object, 
+     * which the tasks of the job that it executes then use.
+     * @param jobId the id of the job.
+     * @param shared the job's shared object.
+     * @throws RemoteException
+     */
+    public void shared( final long jobId, final Shared shared ) throws RemoteException;
+    
+    /**
+     * Forget a job that has completed, or failed: drop its shared object.
+     * @param jobId the id of the job.
+     * @throws RemoteException
+     */
+    public void forget( final long jobId ) throws RemoteException;
+    
+    /**
+     * Do nothing: a Space that has not heard from this Computer in a while
+     * calls this to find out if it still is alive.
+     * @throws RemoteException
+     */
+    public void heartbeat() throws RemoteException;
 }
@@ -26,8 +26,23 @@ import api.*;
 import java.rmi.Naming;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import metrics.Histogram;
+import metrics.Meter;
+import metrics.Metrics;
+import transport.NioComputerConnector;
+import transport.NioSpaceEndpoint;
 
 /**
  * An implementation of the Remote Computer interface.
@@ -35,11 +50,27 @@ import java.util.logging.Logger;
  */
 public final class ComputerImpl extends UnicastRemoteObject implements Computer
 {
-    final private Boolean sharedLock = true;
-          private Shared shared;
+    static final private int NUM_PROCESSORS = Runtime.getRuntime().availableProcessors();
+    static final private int HIGH_WATER_MARK = 8 * NUM_PROCESSORS;
+    static final private AtomicInteger computerNumbers = new AtomicInteger();
+    
+    final private ForkJoinPool localTasks = new ForkJoinPool( NUM_PROCESSORS );
+    final private ExecutorService batches = Executors.newFixedThreadPool( NUM_PROCESSORS, runnable -> 
+    {
+        final Thread thread = new Thread( runnable, "Batch" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+    final private Map<Long, Shared> sharedMap = new ConcurrentHashMap<>(); // job id -> Shared
+    final private Metrics metrics = new Metrics( "computer-" + computerNumbers.getAndIncrement() );
+    final private Histogram callTimes      = metrics.histogram( "callTime" );      // nanoseconds per Task.call
+    final private Histogram batchWaitTimes = metrics.histogram( "batchWaitTime" ); // nanoseconds, received to executed
+    final private Meter tasksExecuted = metrics.meter( "tasks" );
            
     public ComputerImpl( final Space space ) throws RemoteException
     {
+        metrics.gauge( "localQueueDepth", () -> localTasks.getQueuedTaskCount() + localTasks.getQueuedSubmissionCount() );
+        metrics.gauge( "batchQueueDepth", () -> ( (ThreadPoolExecutor) batches ).getQueue().size() );
         Logger.getLogger( getClass().getCanonicalName() )
               .log(Level.INFO, "Computer: started with {0} available processors.", Runtime.getRuntime().availableProcessors() );
     }
@@ -54,34 +85,235 @@ public final class ComputerImpl extends UnicastRemoteObject implements Computer
     @Override
     public Return execute( final Task task, final Shared shared ) throws RemoteException 
     { 
+        return execute( task, shared, SpaceLoad.HUNGRY );
+    }
+    
+    /**
+     * Queue a batch of Tasks for execution, one batch per processor at a time.
+     * @param batchId identifies the batch to the listener.
+     * @param tasks to be executed; the Space sends their jobs' shared objects apart from them.
+     * @param spaceLoad the load of the Space.
+     * @param listener accepts the return values of the Tasks' call methods, in Task order.
+     * @throws RemoteException
+     */
+    @Override
+    public void executeAsync( final long batchId, final List<Task> tasks, final SpaceLoad spaceLoad, 
+                              final ReturnListener listener ) throws RemoteException 
+    { 
+        final long receivedTime = System.nanoTime();
+        batches.execute( () -> 
+        {
+            batchWaitTimes.record( System.nanoTime() - receivedTime );
+            final List<Return> returns = executeBatch( tasks, spaceLoad );
+            tasksExecuted.mark( tasks.size() );
+            try 
+            { 
+                listener.accept( batchId, new CodecList<>( returns ), System.nanoTime() - receivedTime ); 
+            }
+            catch ( RemoteException ex ) 
+            {
+                Logger.getLogger( getClass().getCanonicalName() )
+                      .log( Level.WARNING, "Batch " + batchId + ": Space did not accept returns.", ex );
+            }
+        } );
+    }
+    
+    @Override
+    public void heartbeat() throws RemoteException {}
+    
+    @Override
+    public void shared( final long jobId, final Shared shared ) throws RemoteException 
+    { 
+        updateShared( jobId, shared ); 
+    }
+    
+    @Override
+    public void forget( final long jobId ) { sharedMap.remove( jobId ); }
+    
+    private List<Return> executeBatch( final List<Task> tasks, final SpaceLoad spaceLoad )
+    { 
+        final List<Return> returns = new ArrayList<>( tasks.size() );
+        for ( Task task : tasks )
+        {
+            returns.add( execute( task, task.shared(), spaceLoad ) );
+        }
+        return returns;
+    }
+    
+    /**
+     * Execute a Task. If the Space is over budget, and the Task is recursive, 
+     * it is solved locally and sequentially. Otherwise, if it decomposes, and 
+     * the Space is saturated, and the local queue is below its high-water mark, 
+     * its children are executed locally, and the value of its compose task is returned. 
+     * Otherwise, the decomposition is returned (spilled back) to the Space.
+     */
+    private Return execute( final Task task, final Shared shared, final SpaceLoad spaceLoad )
+    {
         final long startTime = System.nanoTime();
-        return task.shared( upadateShared( shared ) )
-                   .call()
-                   .setIds( task )
-                   .shared( upadateShared( task.shared() ) )
-                   .taskRunTime( System.nanoTime() - startTime );
+        Return result = spaceLoad == SpaceLoad.OVER_BUDGET && task instanceof TaskRecursive
+                      ? solveLocally( task, shared )
+                      : call( task, shared );
+        if ( result instanceof ReturnDecomposition 
+          && spaceLoad == SpaceLoad.SATURATED 
+          && localTasks.getQueuedTaskCount() + localTasks.getQueuedSubmissionCount() < HIGH_WATER_MARK )
+        {
+            final ReturnDecomposition decomposition = (ReturnDecomposition) result;
+            result = localTasks.invoke( ForkJoinTask.adapt( () -> compose( decomposition ) ) );
+        }
+        return result.shared( unadopted( updateShared( task.jobId(), task.shared() ) ) )
+                     .taskRunTime( System.nanoTime() - startTime );
+    }
+    
+    /**
+     * Call a Task. A ReturnValue's T1 and T_inf are its Task's run time.
+     */
+    private Return call( final Task task, final Shared shared )
+    {
+        final long startTime = System.nanoTime();
+        final Return result = task.shared( updateShared( task.jobId(), shared ) )
+                                  .call()
+                                  .setIds( task );
+        result.taskRunTime( System.nanoTime() - startTime );
+        callTimes.record( result.taskRunTime() );
+        result.t1(   result.taskRunTime() );
+        result.tInf( result.taskRunTime() );
+        result.jobId( task.jobId() );
+        updateShared( task.jobId(), task.shared() );
+        return result;
+    }
+    
+    /**
+     * Execute a decomposition's children in the local ForkJoinPool, then its compose task.
+     * Children that decompose are themselves composed locally.
+     * @return the value of the decomposition's compose task, whose time measures
+     * are the decomposition's, computed as in Return.
+     */
+    private ReturnValue compose( final ReturnDecomposition decomposition )
+    {
+        final List<? extends Task> tasks = decomposition.tasks();
+        final List<ForkJoinTask<ReturnValue>> children = new ArrayList<>( tasks.size() );
+        for ( Task task : tasks )
+        {
+            children.add( ForkJoinTask.adapt( () -> callLocally( task ) ).fork() );
+        }
+        final List<ReturnValue> values = new ArrayList<>( children.size() );
+        for ( ForkJoinTask<ReturnValue> child : children )
+        {
+            values.add( child.join() );
+        }
+        return compose( decomposition, values );
+    }
+    
+    /**
+     * Execute a decomposition's compose task, given the values of its children.
+     */
+    private ReturnValue compose( final ReturnDecomposition decomposition, final List<ReturnValue> children )
+    {
+        @SuppressWarnings( "unchecked" ) // its args are its children's values
+        final TaskCompose<Object> compose = decomposition.compose();
+        long sumChildT1 = 0;
+        long maxChildTInf = 0;
+        int numTasks = 2; // the decomposing task & the compose task
+        for ( int i = 0; i < children.size(); i++ )
+        {
+            final ReturnValue child = children.get( i );
+            compose.arg( i, child.value() );
+            sumChildT1 += child.t1();
+            maxChildTInf = Math.max( maxChildTInf, child.tInf() );
+            numTasks += child.numTasks();
+        }
+        final ReturnValue result = (ReturnValue) call( compose, null );
+        final long commonTime = decomposition.taskRunTime() + result.taskRunTime();
+        result.t1(   commonTime + sumChildT1 );
+        result.tInf( commonTime + maxChildTInf );
+        result.numTasks( numTasks );
+        return result;
+    }
+    
+    /**
+     * Solve a Task in the calling thread: its descendants are executed depth first.
+     * A recursive task at or below its cutoff is solved by its solve method, as in 
+     * TaskRecursive.call; above it, it still decomposes, so that its children are 
+     * pruned with the job's shared object.
+     */
+    private ReturnValue solveLocally( final Task task, final Shared shared )
+    {
+        final Return result = call( task, shared );
+        if ( ! ( result instanceof ReturnDecomposition ) )
+        {
+            return (ReturnValue) result;
+        }
+        final ReturnDecomposition decomposition = (ReturnDecomposition) result;
+        final List<ReturnValue> values = new ArrayList<>( decomposition.tasks().size() );
+        for ( Task child : decomposition.tasks() )
+        {
+            values.add( solveLocally( child, null ) );
+        }
+        return compose( decomposition, values );
+    }
+    
+    private ReturnValue callLocally( final Task task )
+    {
+        final Return result = call( task, null );
+        return result instanceof ReturnDecomposition 
+             ? compose( (ReturnDecomposition) result )
+             : (ReturnValue) result;
     }
     
     /**
      *
      * @param args [0] domain name of Space; localhost, if unspecified.
+     * [1] "nio", to connect with the NIO transport, rather than RMI.
      * @throws Exception
      */
     public static void main( final String[] args ) throws Exception
     {
         System.setSecurityManager( new SecurityManager() );
         final String domainName = args.length == 0 ? "localhost" : args[ 0 ];
+        final int numProcessors = Runtime.getRuntime().availableProcessors();
+        if ( args.length > 1 && args[ 1 ].equals( "nio" ) )
+        {
+            final ComputerImpl computer = new ComputerImpl( null );
+            Runtime.getRuntime().addShutdownHook( new Thread( computer::close ) );
+            new NioComputerConnector( computer, numProcessors, domainName, NioSpaceEndpoint.PORT ).start();
+            return;
+        }
         final String url = "rmi://" + domainName + ":" + Space.PORT + "/" + Space.SERVICE_NAME;
         final Space space = (Space) Naming.lookup( url );
-        space.register( new ComputerImpl( space ), Runtime.getRuntime().availableProcessors() );
+        final ComputerImpl computer = new ComputerImpl( space );
+        Runtime.getRuntime().addShutdownHook( new Thread( computer::close ) );
+        space.register( computer, numProcessors );
     }
+    
+    /**
+     * Unregister this computer's metrics.
+     */
+    public void close() { metrics.close(); }
             
-    private Shared upadateShared( final Shared that )
+    /**
+     * Keep the newer of this computer's shared object for a job and that one.
+     * Of two shared objects, neither older than the other, the later version is kept:
+     * the Space's adopted version of an object that this computer made replaces it.
+     * @param jobId the id of the job.
+     * @param that a shared object of the job; may be null.
+     * @return the newer shared object; null, if there is none.
+     */
+    @SuppressWarnings( "unchecked" ) // a job's shared objects are of one class
+    private Shared updateShared( final long jobId, final Shared that )
     {
-        synchronized( sharedLock )
-        {
-            this.shared = this.shared == null || this.shared.isOlderThan( that ) ? that : this.shared;
-            return this.shared;
-        }
+        return that == null 
+             ? sharedMap.get( jobId )
+             : sharedMap.merge( jobId, that, ( mine, theirs ) -> 
+                     mine.isOlderThan( theirs ) || ! theirs.isOlderThan( mine ) && theirs.version() > mine.version() 
+                     ? theirs : mine );
+    }
+    
+    /**
+     * A Return carries its computer's shared object only if the Space has not 
+     * adopted it: otherwise, the Space has it, or a newer one.
+     */
+    private static Shared unadopted( final Shared shared )
+    {
+        return shared != null && shared.version() == 0 ? shared : null;
     }
 }
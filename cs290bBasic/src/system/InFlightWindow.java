@@ -0,0 +1,110 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package system;
+
+/**
+ * A bound on the number of batches in flight to one computer.
+ * Batches in flight hide the round trip latency of a remote call: the next
+ * batch is on the wire before the computer finishes the current one.
+ * A computer with p processors runs p batches at once, and during one round 
+ * trip each processor consumes latency / batch run time batches, so 
+ * depth = p * ( 1 + ceiling( latency / batch run time ) ).
+ * Both measures are exponentially weighted moving averages.
+ * @author Peter Cappello
+ */
+final class InFlightWindow 
+{
+    static final public int     MAX_DEPTH = 64;
+    static final private double WEIGHT = 0.25; // weight of newest measurement
+    
+    final private int numProcessors;
+    private double meanLatency;      // nanoseconds per round trip not spent on the computer
+    private double meanBatchRunTime; // nanoseconds per batch
+    private int depth;
+    private int numInFlight;
+    
+    /**
+     * @param numProcessors the number of processors of the computer.
+     */
+    InFlightWindow( final int numProcessors ) 
+    { 
+        this.numProcessors = Math.max( 1, numProcessors );
+        depth = Math.min( MAX_DEPTH, this.numProcessors );
+    }
+    
+    /**
+     * Wait until the window has room, then add a batch to it.
+     * @throws InterruptedException 
+     */
+    synchronized void acquire() throws InterruptedException
+    {
+        while ( numInFlight >= depth )
+        {
+            wait();
+        }
+        numInFlight++;
+    }
+    
+    /**
+     * Remove a batch from the window.
+     */
+    synchronized void release()
+    {
+        assert numInFlight > 0;
+        numInFlight--;
+        notifyAll();
+    }
+    
+    /**
+     * @return the maximum number of batches in flight.
+     */
+    synchronized int depth() { return depth; }
+    
+    /**
+     * @return the number of batches in flight.
+     */
+    synchronized int numInFlight() { return numInFlight; }
+    
+    /**
+     * Update the depth with the measures of a completed batch.
+     * @param latency the batch's round trip time less its time on the computer, in nanoseconds.
+     * @param batchRunTime the sum of the batch's task run times, in nanoseconds.
+     */
+    synchronized void update( final long latency, final long batchRunTime )
+    {
+        if ( meanBatchRunTime == 0 )
+        {
+            meanLatency = latency;
+            meanBatchRunTime = batchRunTime;
+        }
+        else
+        {
+            meanLatency      = WEIGHT * latency      + ( 1 - WEIGHT ) * meanLatency;
+            meanBatchRunTime = WEIGHT * batchRunTime + ( 1 - WEIGHT ) * meanBatchRunTime;
+        }
+        final double batchesPerRoundTrip = Math.ceil( meanLatency / Math.max( 1.0, meanBatchRunTime ) );
+        depth = (int) Math.max( 1, Math.min( MAX_DEPTH, numProcessors * ( 1 + batchesPerRoundTrip ) ) );
+        notifyAll();
+    }
+}
@@ -0,0 +1,309 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package system;
+
+import api.JobHandle;
+import api.NullShared;
+import api.RemoteEventListener;
+import api.ReturnValue;
+import api.Shared;
+import java.rmi.NoSuchObjectException;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The state the Space keeps for one job: its root, its shared object, 
+ * its result, and its time measures.
+ * Jobs are isolated from one another: the tasks of a job carry its id.
+ * A Job is the remote handle on the job that the Space returns to its client.
+ * It is unexported space.jobRetention seconds after the job completes, or fails.
+ * @author Peter Cappello
+ */
+final public class Job extends UnicastRemoteObject implements JobHandle
+{
+    static final private long serialVersionUID = 1L;
+    static final private Shared END_OF_EVENTS = new NullShared();
+    static final private long   FORWARDING_WAIT = 10; // seconds take waits for the listener to be sent the job's last events
+    static final private long   RETENTION = Long.getLong( "space.jobRetention", 60 ); // seconds
+    static final private ExecutorService CALLBACKS = Executors.newCachedThreadPool( runnable -> 
+    {
+        final Thread thread = new Thread( runnable, "JobCallback" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+    static final private ScheduledExecutorService UNEXPORTS = Executors.newSingleThreadScheduledExecutor( runnable -> 
+    {
+        final Thread thread = new Thread( runnable, "JobUnexport" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+    
+    final private long id;
+    final private long rootComposeId;
+    final private long startTime = System.nanoTime();
+    final private CompletableFuture<ReturnValue> result = new CompletableFuture<>();
+    final private BlockingQueue<Shared>         eventQ = new LinkedBlockingQueue<>();
+    final private CountDownLatch eventsForwarded = new CountDownLatch( 1 );
+    final private AtomicInteger numTasks = new AtomicInteger();
+    final private AtomicInteger numPrunedTasks = new AtomicInteger();
+    final private AdaptiveGranularity granularity;
+    final private Trace trace; // null, if tracing is disabled
+    final private Object sharedLock = new Object();
+          private volatile Shared shared;
+          private long sharedVersion;
+    
+    /**
+     * @param id the job's id.
+     * @param rootComposeId the compose id of the job's root task.
+     * @param granularity tunes the cutoff of the job's recursive tasks.
+     * @param shared the initial shared object; null, if the job does not use one.
+     * @param listener receives each newer shared object; null, if none.
+     * @throws RemoteException if the handle cannot be exported.
+     */
+    Job( final long id, final long rootComposeId, final AdaptiveGranularity granularity, final Shared shared, 
+         final RemoteEventListener listener ) throws RemoteException
+    {
+        this.id = id;
+        this.rootComposeId = rootComposeId;
+        this.granularity = granularity;
+        this.trace = Trace.isEnabled() ? new Trace( id, startTime ) : null;
+        this.shared = shared == null ? new NullShared() : shared;
+        this.shared.version( ++sharedVersion );
+        if ( listener != null )
+        {
+            eventQ.add( this.shared );
+            new ListenerProxy( listener ).start();
+        }
+        else
+        {
+            eventsForwarded.countDown();
+        }
+        result.whenComplete( ( value, failure ) -> UNEXPORTS.schedule( this::unexport, RETENTION, TimeUnit.SECONDS ) );
+    }
+    
+    /**
+     * The client has had time to take the job's value: it no longer is remotely accessible.
+     */
+    private void unexport()
+    {
+        try { UnicastRemoteObject.unexportObject( this, true ); }
+        catch ( NoSuchObjectException ignore ) {}
+    }
+    
+    @Override public long id() { return id; }
+    
+    long rootComposeId() { return rootComposeId; }
+    
+    Shared shared() { return shared; }
+    
+    AdaptiveGranularity granularity() { return granularity; }
+    
+    Trace trace() { return trace; }
+    
+    /**
+     * Replace this job's shared object, if that one is newer.
+     * The adopted shared object gets the job's next version.
+     * @param that a shared object; may be null.
+     * @return true if and only if that one was adopted.
+     */
+    @SuppressWarnings( "unchecked" ) // a job's shared objects are of one class
+    boolean newerShared( final Shared that )
+    {
+        if ( that == null )
+        {
+            return false;
+        }
+        synchronized ( sharedLock )
+        {
+            if ( ! shared.isOlderThan( that ) )
+            {
+                return false;
+            }
+            that.version( ++sharedVersion );
+            shared = that;
+            eventQ.add( that );
+            return true;
+        }
+    }
+    
+    void addTasks( final int numTasks ) { this.numTasks.getAndAdd( numTasks ); }
+    
+    int numTasks() { return numTasks.get(); }
+    
+    void addPrunedTasks( final int numPrunedTasks ) { this.numPrunedTasks.getAndAdd( numPrunedTasks ); }
+    
+    /**
+     * Complete this job.
+     * @param result the value of the job's root task.
+     * @return true if and only if this completed the job: it was not already complete.
+     */
+    boolean putResult( final ReturnValue result ) 
+    { 
+        eventQ.add( END_OF_EVENTS );
+        return this.result.complete( result ); 
+    }
+    
+    /**
+     * Fail this job: its client's take throws.
+     * @param cause why the job failed.
+     * @return true if and only if this completed the job: it was not already complete.
+     */
+    boolean fail( final Throwable cause )
+    {
+        eventQ.add( END_OF_EVENTS );
+        return result.completeExceptionally( cause );
+    }
+    
+    @Override public boolean isDone() { return result.isDone(); }
+    
+    /**
+     * Take this job's result, waiting until it is available, 
+     * and until its listener, if any, has been sent all of its events:
+     * the client then may unexport the listener.
+     * @return the job's result.
+     * @throws RemoteException if the job failed.
+     */
+    @Override public ReturnValue take() throws RemoteException
+    {
+        try { return awaitForwarding( result.get() ); } 
+        catch ( ExecutionException exception ) 
+        { 
+            throw new RemoteException( "Job " + id + " failed.", exception.getCause() ); 
+        }
+        catch ( InterruptedException ignore ) 
+        {
+            Logger.getLogger( getClass().getName() )
+                  .log(Level.INFO, null, ignore );
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+    
+    @Override public ReturnValue take( final long timeout, final TimeUnit unit ) throws RemoteException
+    {
+        try { return awaitForwarding( result.get( timeout, unit ) ); } 
+        catch ( TimeoutException ignore ) { return null; }
+        catch ( ExecutionException exception ) 
+        { 
+            throw new RemoteException( "Job " + id + " failed.", exception.getCause() ); 
+        }
+        catch ( InterruptedException ignore ) 
+        {
+            Logger.getLogger( getClass().getName() )
+                  .log(Level.INFO, null, ignore );
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+    
+    private ReturnValue awaitForwarding( final ReturnValue value ) throws InterruptedException
+    {
+        if ( ! eventsForwarded.await( FORWARDING_WAIT, TimeUnit.SECONDS ) )
+        {
+            Logger.getLogger( getClass().getName() )
+                  .log( Level.WARNING, "Job {0}: its listener has not been sent all of its events.", String.valueOf( id ) );
+        }
+        return value;
+    }
+    
+    /**
+     * @param listener accepts the job's value; null, if the job failed.
+     */
+    @SuppressWarnings( "unchecked" ) // it accepts the value of this job
+    @Override public void addListener( final RemoteEventListener listener )
+    {
+        result.whenCompleteAsync( ( value, failure ) -> 
+        {
+            try { listener.accept( failure == null ? value : null ); }
+            catch ( RemoteException ex ) 
+            {
+                Logger.getLogger( getClass().getName() )
+                      .log( Level.INFO, "Listener accept of job value failed", ex );
+            }
+        }, CALLBACKS );
+    }
+    
+    /**
+     * @param result the job's result.
+     * @param maxResultQueueDepths the maximum queue depth of each result pipeline shard, 
+     * since the Space started: the shards serve every job.
+     */
+    void reportTimeMeasures( final ReturnValue result, final int[] maxResultQueueDepths )
+    {
+        Logger.getLogger( getClass().getCanonicalName() )
+              .log( Level.INFO, 
+                    "\n\tJob: {0}\n\tRun time: {1}ms.\n\tTotal tasks: {2} \n\tT_1: {3}ms.\n\tT_inf: {4}ms.\n\tT_1 / T_inf: {5}\n\tMax result queue depth per shard, since the Space started: {6}\n\tTasks pruned in queue: {7}\n\tCutoff: {8}", 
+                    new Object[]{ String.valueOf( id ), ( System.nanoTime() - startTime ) / 1000000, numTasks, result.t1() / 1000000, result.tInf() / 1000000, result.t1() / Math.max( 1, result.tInf() ), Arrays.toString( maxResultQueueDepths ), numPrunedTasks, granularity.get() } );
+    }
+    
+    /**
+     * Forwards this job's newer shared objects to the job's listener, until the job completes.
+     */
+    private class ListenerProxy extends Thread
+    {
+        private final RemoteEventListener<Shared> remoteListener;
+        
+        @SuppressWarnings( "unchecked" ) // it accepts the shared objects of this job
+        private ListenerProxy( final RemoteEventListener remoteListener )
+        {
+            this.remoteListener = remoteListener;
+        }
+        
+        @Override public void run()
+        {
+            while ( true )
+            {
+                try   
+                { 
+                    final Shared event = eventQ.take();
+                    if ( event == END_OF_EVENTS )
+                    {
+                        eventsForwarded.countDown();
+                        return;
+                    }
+                    remoteListener.accept( event ); 
+                } 
+                catch ( InterruptedException | RemoteException ex ) 
+                {
+                    Logger.getLogger( getClass().getName() )
+                          .log( Level.INFO, "Listener accept of event failed", ex );
+                }
+            }
+        }
+    }
+}
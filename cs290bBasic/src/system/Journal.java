@@ -0,0 +1,726 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package system;
+
+import api.Shared;
+import api.TaskCompose;
+import api.ReturnValue;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An append-only journal of the changes to the Space's state, from which a 
+ * restarted Space recovers its unfinished jobs: their shared objects, their 
+ * waiting compose tasks, and their ready tasks, including those that were 
+ * in flight to computers.
+ * <p>
+ * A record is appended to a memory-mapped segment file: an append copies it
+ * into the page cache, without a system call. So, a record survives the 
+ * failure of the Space's JVM, but not of its host.
+ * The Space appends a record before it acts on it, e.g., a decomposition before 
+ * its tasks are ready, so that the journal's records of a job are causally ordered.
+ * <p>
+ * When a segment fills, a background thread compacts the latest snapshot and
+ * the segments after it into a new snapshot: the state of each unfinished job.
+ * Recovery replays the latest snapshot, then the segments after it.
+ * @author Peter Cappello
+ */
+final class Journal 
+{
+    static final private long   SEGMENT_SIZE = 1 << 26; // bytes
+    static final private String SEGMENT  = "segment-";
+    static final private String SNAPSHOT = "snapshot-";
+    static final private String SUFFIX   = ".journal";
+    static final private String TEMPORARY = ".tmp";
+    
+    // record types
+    static final private byte JOB           = 1; // job id, root compose id, shared, scheduling policy, cutoff, root task or null
+    static final private byte TASK          = 2; // ready task
+    static final private byte COMPOSE       = 3; // waiting compose task
+    static final private byte DECOMPOSITION = 4; // job id, parent task id, compose task, tasks
+    static final private byte VALUE         = 5; // job id, task id, compose id, compose arg num, value
+    static final private byte SHARED        = 6; // job id, shared
+    static final private byte FAILED        = 7; // job id
+    
+    static final private ThreadLocal<Output> OUTPUTS = ThreadLocal.withInitial( Output::new );
+    
+    final private Path directory;
+    final private AtomicBoolean isCompacting = new AtomicBoolean();
+    final private ExecutorService compactor = Executors.newSingleThreadExecutor( runnable -> 
+    {
+        final Thread thread = new Thread( runnable, "JournalCompactor" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+    private long segmentIndex;
+    private MappedByteBuffer segment; // null, until recovery, and after a failure
+    
+    /**
+     * @param directory the directory of the journal's files; created, if it does not exist.
+     * @throws IOException 
+     */
+    Journal( final Path directory ) throws IOException
+    {
+        this.directory = Files.createDirectories( directory );
+    }
+    
+    /**
+     * Replay the journal, compact it into a snapshot, and start a new segment. 
+     * Records are appended only after recovery.
+     * @return the state of the unfinished jobs.
+     * @throws IOException 
+     */
+    synchronized State recover() throws IOException
+    {
+        for ( Path file : files( "*" + TEMPORARY ) )
+        {
+            Files.delete( file ); // of a compaction that did not finish
+        }
+        final long lastIndex = Math.max( lastIndex( SEGMENT ), lastIndex( SNAPSHOT ) );
+        final State state = new State();
+        if ( lastIndex > 0 )
+        {
+            replay( lastIndex, state );
+            writeSnapshot( lastIndex, state );
+        }
+        segmentIndex = lastIndex;
+        openSegment( SEGMENT_SIZE );
+        return state;
+    }
+    
+    /**
+     * Append a job.
+     * @param jobId the job's id.
+     * @param rootComposeId the compose id of its root task.
+     * @param shared its shared object.
+     * @param policy its scheduling policy.
+     * @param cutoff the cutoff of its recursive tasks.
+     * @param rootTask its root task.
+     */
+    void job( final long jobId, final long rootComposeId, final Shared shared, final SchedulingPolicy policy, 
+              final int cutoff, final Task rootTask ) 
+    {
+        try { append( encodeJob( jobId, rootComposeId, shared, policy, cutoff, rootTask ) ); }
+        catch ( IOException ex ) { fail( ex ); }
+    }
+    
+    /**
+     * Append a decomposition: the parent task is done; the compose task waits; the tasks are ready.
+     * @param parentTask the decomposed task.
+     * @param compose the compose task, with its id.
+     * @param tasks the tasks, with their ids.
+     */
+    void decomposition( final Task parentTask, final TaskCompose<?> compose, final List<? extends Task> tasks )
+    {
+        try 
+        { 
+            final Output out = output( DECOMPOSITION );
+            out.writeLong( parentTask.jobId() );
+            out.writeLong( parentTask.id() );
+            Codecs.write( out, compose );
+            Codecs.writeVarLong( out, tasks.size() );
+            for ( Task task : tasks )
+            {
+                Codecs.write( out, task );
+            }
+            append( out );
+        }
+        catch ( IOException ex ) { fail( ex ); }
+    }
+    
+    /**
+     * Append a value: the task is done; its value is an input of its compose task.
+     * @param task the task.
+     * @param value its value.
+     */
+    void value( final Task task, final ReturnValue<?> value )
+    {
+        try 
+        { 
+            append( encodeValue( task.jobId(), task.id(), value.composeId(), value.composeArgNum(), value.value() ) ); 
+        }
+        catch ( IOException ex ) { fail( ex ); }
+    }
+    
+    /**
+     * Append a job's newly adopted shared object.
+     * @param jobId the job's id.
+     * @param shared the shared object.
+     */
+    void shared( final long jobId, final Shared shared )
+    {
+        try 
+        { 
+            final Output out = output( SHARED );
+            out.writeLong( jobId );
+            Codecs.write( out, shared );
+            append( out );
+        }
+        catch ( IOException ex ) { fail( ex ); }
+    }
+    
+    /**
+     * Append a job's failure: it is not resumed.
+     * @param jobId the job's id.
+     */
+    void failed( final long jobId )
+    {
+        try 
+        { 
+            final Output out = output( FAILED );
+            out.writeLong( jobId );
+            append( out );
+        }
+        catch ( IOException ex ) { fail( ex ); }
+    }
+    
+    /**
+     * Copy a record into the segment, its length after its contents: 
+     * replay stops at a 0 length.
+     */
+    private synchronized void append( final Output out ) throws IOException
+    {
+        if ( segment == null )
+        {
+            return;
+        }
+        final int length = out.size();
+        if ( segment.remaining() < length + 2 * Integer.BYTES )
+        {
+            roll( length );
+        }
+        final int position = segment.position();
+        segment.position( position + Integer.BYTES );
+        segment.put( out.bytes(), 0, length );
+        segment.putInt( position, length );
+    }
+    
+    /**
+     * Start a new segment, and compact the segments before it, unless a compaction is under way.
+     */
+    private void roll( final int length ) throws IOException
+    {
+        final long lastIndex = segmentIndex;
+        openSegment( Math.max( SEGMENT_SIZE, length + 2 * Integer.BYTES ) );
+        if ( isCompacting.compareAndSet( false, true ) )
+        {
+            compactor.execute( () -> compact( lastIndex ) );
+        }
+    }
+    
+    private void openSegment( final long size ) throws IOException
+    {
+        segmentIndex++;
+        try ( FileChannel channel = FileChannel.open( file( SEGMENT, segmentIndex ), 
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE ) )
+        {
+            segment = channel.map( FileChannel.MapMode.READ_WRITE, 0, size );
+        }
+    }
+    
+    private void fail( final IOException ex )
+    {
+        synchronized ( this ) { segment = null; }
+        Logger.getLogger( getClass().getName() )
+              .log( Level.SEVERE, "Journaling stopped.", ex );
+    }
+    
+    /**
+     * Compact the latest snapshot, and the segments after it, through lastIndex into a snapshot.
+     */
+    private void compact( final long lastIndex )
+    {
+        try
+        {
+            final State state = new State();
+            replay( lastIndex, state );
+            writeSnapshot( lastIndex, state );
+        }
+        catch ( IOException ex )
+        {
+            Logger.getLogger( getClass().getName() )
+                  .log( Level.WARNING, "Journal compaction failed.", ex );
+        }
+        finally
+        {
+            isCompacting.set( false );
+        }
+    }
+    
+    private void replay( final long lastIndex, final State state ) throws IOException
+    {
+        long snapshotIndex = 0;
+        for ( long index : indices( SNAPSHOT ) )
+        {
+            if ( index <= lastIndex )
+            {
+                snapshotIndex = index;
+            }
+        }
+        if ( snapshotIndex > 0 )
+        {
+            replay( file( SNAPSHOT, snapshotIndex ), state );
+        }
+        for ( long index : indices( SEGMENT ) )
+        {
+            if ( snapshotIndex < index && index <= lastIndex )
+            {
+                replay( file( SEGMENT, index ), state );
+            }
+        }
+    }
+    
+    private static void replay( final Path file, final State state ) throws IOException
+    {
+        final MappedByteBuffer buffer;
+        try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) )
+        {
+            buffer = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+        }
+        while ( buffer.remaining() >= Integer.BYTES )
+        {
+            final int length = buffer.getInt();
+            if ( length <= 0 || length > buffer.remaining() )
+            {
+                return;
+            }
+            final byte[] record = new byte[ length ];
+            buffer.get( record );
+            try ( Input in = new Input( record ) )
+            {
+                state.apply( in );
+            }
+            catch ( ClassNotFoundException ex )
+            {
+                throw new InvalidClassException( ex.getMessage() );
+            }
+        }
+    }
+    
+    /**
+     * Write a snapshot, then delete the files it replaces. 
+     * The snapshot is written under a temporary name, then renamed, 
+     * so that a snapshot file always is complete.
+     */
+    private void writeSnapshot( final long index, final State state ) throws IOException
+    {
+        final Path snapshot = file( SNAPSHOT, index );
+        final Path temporary = snapshot.resolveSibling( snapshot.getFileName() + TEMPORARY );
+        try ( DataOutputStream out = new DataOutputStream( new BufferedOutputStream( Files.newOutputStream( temporary ) ) ) )
+        {
+            for ( Output record : state.records() )
+            {
+                out.writeInt( record.size() );
+                out.write( record.bytes(), 0, record.size() );
+            }
+        }
+        Files.move( temporary, snapshot, StandardCopyOption.ATOMIC_MOVE );
+        for ( long i : indices( SNAPSHOT ) )
+        {
+            if ( i < index )
+            {
+                Files.delete( file( SNAPSHOT, i ) );
+            }
+        }
+        for ( long i : indices( SEGMENT ) )
+        {
+            if ( i <= index )
+            {
+                Files.delete( file( SEGMENT, i ) );
+            }
+        }
+    }
+    
+    private Path file( final String prefix, final long index )
+    {
+        return directory.resolve( String.format( "%s%016d%s", prefix, index, SUFFIX ) );
+    }
+    
+    private List<Path> files( final String glob ) throws IOException
+    {
+        final List<Path> files = new ArrayList<>();
+        try ( DirectoryStream<Path> stream = Files.newDirectoryStream( directory, glob ) )
+        {
+            for ( Path file : stream )
+            {
+                files.add( file );
+            }
+        }
+        return files;
+    }
+    
+    /**
+     * @return the indices of the files with the prefix, in increasing order.
+     */
+    private List<Long> indices( final String prefix ) throws IOException
+    {
+        final List<Long> indices = new ArrayList<>();
+        for ( Path file : files( prefix + "*" + SUFFIX ) )
+        {
+            final String name = file.getFileName().toString();
+            indices.add( Long.parseLong( name.substring( prefix.length(), name.length() - SUFFIX.length() ) ) );
+        }
+        Collections.sort( indices );
+        return indices;
+    }
+    
+    private long lastIndex( final String prefix ) throws IOException
+    {
+        final List<Long> indices = indices( prefix );
+        return indices.isEmpty() ? 0 : indices.get( indices.size() - 1 );
+    }
+    
+    private static Output output( final byte type ) throws IOException
+    {
+        final Output out = OUTPUTS.get();
+        out.reset();
+        out.writeByte( type );
+        return out;
+    }
+    
+    private static Output encodeJob( final long jobId, final long rootComposeId, final Shared shared, 
+                                     final SchedulingPolicy policy, final int cutoff, final Task rootTask ) throws IOException
+    {
+        final Output out = output( JOB );
+        out.writeLong( jobId );
+        out.writeLong( rootComposeId );
+        Codecs.write( out, shared );
+        Codecs.write( out, policy );
+        Codecs.writeVarLong( out, cutoff );
+        Codecs.write( out, rootTask );
+        return out;
+    }
+    
+    private static Output encodeValue( final long jobId, final long taskId, final long composeId, 
+                                       final int composeArgNum, final Object value ) throws IOException
+    {
+        final Output out = output( VALUE );
+        out.writeLong( jobId );
+        out.writeLong( taskId );
+        out.writeLong( composeId );
+        Codecs.writeVarLong( out, composeArgNum );
+        Codecs.write( out, value );
+        return out;
+    }
+    
+    private static Output encodeTask( final byte type, final Task task ) throws IOException
+    {
+        final Output out = output( type );
+        Codecs.write( out, task );
+        return out;
+    }
+    
+    /**
+     * The state of the unfinished jobs, as replayed from the journal.
+     */
+    static final class State
+    {
+        final private Map<Long, JobState> jobs = new LinkedHashMap<>();
+        
+        Collection<JobState> jobs() { return jobs.values(); }
+        
+        @SuppressWarnings( "unchecked" )
+        private void apply( final ObjectInput in ) throws IOException, ClassNotFoundException
+        {
+            final byte type = in.readByte();
+            switch ( type )
+            {
+                case JOB:
+                {
+                    final JobState job = new JobState( in.readLong(), in.readLong(), (Shared) Codecs.read( in ), 
+                                                       (SchedulingPolicy) Codecs.read( in ), (int) Codecs.readVarLong( in ) );
+                    jobs.put( job.id, job );
+                    final Task rootTask = (Task) Codecs.read( in );
+                    if ( rootTask != null )
+                    {
+                        job.tasks.put( rootTask.id(), rootTask );
+                    }
+                    return;
+                }
+                case TASK:
+                case COMPOSE:
+                {
+                    final Task task = (Task) Codecs.read( in );
+                    final JobState job = jobs.get( task.jobId() );
+                    if ( job != null )
+                    {
+                        ( type == TASK ? job.tasks : job.composes ).put( task.id(), task );
+                    }
+                    return;
+                }
+                case DECOMPOSITION:
+                {
+                    final JobState job = jobs.get( in.readLong() );
+                    final long parentTaskId = in.readLong();
+                    final Task compose = (Task) Codecs.read( in );
+                    final int numTasks = (int) Codecs.readVarLong( in );
+                    if ( job == null )
+                    {
+                        return;
+                    }
+                    job.tasks.remove( parentTaskId );
+                    job.composes.put( compose.id(), compose );
+                    for ( int i = 0; i < numTasks; i++ )
+                    {
+                        final Task task = (Task) Codecs.read( in );
+                        job.tasks.put( task.id(), task );
+                    }
+                    return;
+                }
+                case VALUE:
+                {
+                    final long jobId = in.readLong();
+                    final JobState job = jobs.get( jobId );
+                    final long taskId = in.readLong();
+                    final long composeId = in.readLong();
+                    final int composeArgNum = (int) Codecs.readVarLong( in );
+                    final Object value = Codecs.read( in );
+                    if ( job == null )
+                    {
+                        return;
+                    }
+                    if ( composeId == job.rootComposeId )
+                    {
+                        jobs.remove( jobId ); // the job is complete.
+                        return;
+                    }
+                    job.tasks.remove( taskId );
+                    job.composes.remove( taskId ); // a compose task that executed
+                    final TaskCompose<Object> compose = (TaskCompose<Object>) job.composes.get( composeId );
+                    if ( compose != null )
+                    {
+                        compose.arg( composeArgNum, value );
+                    }
+                    return;
+                }
+                case SHARED:
+                {
+                    final JobState job = jobs.get( in.readLong() );
+                    final Shared shared = (Shared) Codecs.read( in );
+                    if ( job != null && ( job.shared == null || job.shared.isOlderThan( shared ) ) )
+                    {
+                        job.shared = shared; // records of concurrent adoptions may be out of order
+                    }
+                    return;
+                }
+                case FAILED:
+                    jobs.remove( in.readLong() );
+                    return;
+                default: throw new StreamCorruptedException( "Unknown journal record type: " + type );
+            }
+        }
+        
+        /**
+         * @return records that, replayed, reproduce this state.
+         */
+        private List<Output> records() throws IOException
+        {
+            final List<Output> records = new ArrayList<>();
+            for ( JobState job : jobs.values() )
+            {
+                records.add( copy( encodeJob( job.id, job.rootComposeId, job.shared, job.policy, job.cutoff, null ) ) );
+                for ( Task task : job.composes.values() )
+                {
+                    final TaskCompose<?> compose = (TaskCompose<?>) task;
+                    records.add( copy( encodeTask( COMPOSE, compose ) ) );
+                    for ( int i = 0; i < compose.numArgs(); i++ )
+                    {
+                        if ( compose.arg( i ) != null )
+                        {
+                            records.add( copy( encodeValue( job.id, 0, compose.id(), i, compose.arg( i ) ) ) );
+                        }
+                    }
+                }
+                for ( Task task : job.tasks.values() )
+                {
+                    records.add( copy( encodeTask( TASK, task ) ) );
+                }
+            }
+            return records;
+        }
+        
+        private static Output copy( final Output record ) throws IOException
+        {
+            final Output copy = new Output();
+            copy.write( record.bytes(), 0, record.size() );
+            return copy;
+        }
+    }
+    
+    /**
+     * The state of an unfinished job.
+     */
+    static final class JobState
+    {
+        final private long id;
+        final private long rootComposeId;
+        final private Map<Long, Task> tasks    = new LinkedHashMap<>();
+        final private Map<Long, Task> composes = new LinkedHashMap<>();
+        final private SchedulingPolicy policy;
+        final private int cutoff;
+        private Shared shared;
+        
+        private JobState( final long id, final long rootComposeId, final Shared shared, final SchedulingPolicy policy,
+                          final int cutoff )
+        {
+            this.id = id;
+            this.rootComposeId = rootComposeId;
+            this.shared = shared;
+            this.policy = policy;
+            this.cutoff = cutoff;
+        }
+        
+        long id() { return id; }
+        
+        long rootComposeId() { return rootComposeId; }
+        
+        Shared shared() { return shared; }
+        
+        SchedulingPolicy policy() { return policy; }
+        
+        /**
+         * @return the cutoff of the job's recursive tasks, when it was submitted.
+         */
+        int cutoff() { return cutoff; }
+        
+        /**
+         * @return the job's ready tasks.
+         */
+        Collection<Task> tasks() { return tasks.values(); }
+        
+        /**
+         * @return the job's waiting compose tasks, some of which may have all their inputs.
+         */
+        Collection<Task> composes() { return composes.values(); }
+    }
+    
+    /**
+     * A record being written: Codecs write an object without a codec, and its
+     * class, with Java serialization, which this does one object at a time, 
+     * so that each record can be read by itself.
+     */
+    static final private class Output extends DataOutputStream implements ObjectOutput
+    {
+        static final private byte NULL       = 0;
+        static final private byte CLASS      = 1;
+        static final private byte SERIALIZED = 2;
+        
+        private Output() { super( new Bytes() ); }
+        
+        private byte[] bytes() { return ( (Bytes) out ).array(); }
+        
+        private void reset() 
+        { 
+            ( (Bytes) out ).reset(); 
+            written = 0;
+        }
+        
+        @Override
+        public void writeObject( final Object object ) throws IOException
+        {
+            if ( object == null )
+            {
+                writeByte( NULL );
+            }
+            else if ( object instanceof Class )
+            {
+                writeByte( CLASS );
+                writeUTF( ( (Class<?>) object ).getName() );
+            }
+            else
+            {
+                final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try ( ObjectOutputStream objectOut = new ObjectOutputStream( bytes ) )
+                {
+                    objectOut.writeObject( object );
+                }
+                writeByte( SERIALIZED );
+                writeInt( bytes.size() );
+                bytes.writeTo( this );
+            }
+        }
+    }
+    
+    static final private class Bytes extends ByteArrayOutputStream
+    {
+        private byte[] array() { return buf; }
+    }
+    
+    /**
+     * A record being read.
+     */
+    static final private class Input extends DataInputStream implements ObjectInput
+    {
+        private Input( final byte[] record ) { super( new ByteArrayInputStream( record ) ); }
+        
+        @Override
+        public Object readObject() throws ClassNotFoundException, IOException
+        {
+            final byte tag = readByte();
+            switch ( tag )
+            {
+                case Output.NULL:  return null;
+                case Output.CLASS: return Class.forName( readUTF() );
+                case Output.SERIALIZED:
+                {
+                    final byte[] bytes = new byte[ readInt() ];
+                    readFully( bytes );
+                    try ( ObjectInputStream objectIn = new ObjectInputStream( new ByteArrayInputStream( bytes ) ) )
+                    {
+                        return objectIn.readObject();
+                    }
+                }
+                default: throw new StreamCorruptedException( "Unknown object tag: " + tag );
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package system;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lease durations of batches in flight, from the round trip times of completed batches.
+ * After Jacobson's retransmission timer, a batch's lease is its number of tasks times
+ * the mean round trip time per task plus four of its mean deviations, 
+ * but at least MIN_DURATION.
+ * A batch in flight longer than its lease is overdue: its computer is a straggler.
+ * Both measures are exponentially weighted moving averages.
+ * @author Peter Cappello
+ */
+final class Leases 
+{
+    static final private long   MIN_DURATION = TimeUnit.MILLISECONDS.toNanos( 50 );
+    static final private double WEIGHT = 0.25; // weight of newest measurement
+    
+    private double meanTime;      // nanoseconds per task
+    private double meanDeviation; // nanoseconds per task
+    
+    /**
+     * Update the lease measures with a completed batch.
+     * @param numTasks the number of tasks in the batch.
+     * @param roundTripTime the time from sending the batch to accepting its returns, in nanoseconds.
+     */
+    synchronized void update( final int numTasks, final long roundTripTime )
+    {
+        final double time = (double) roundTripTime / Math.max( 1, numTasks );
+        if ( meanTime == 0 )
+        {
+            meanTime = time;
+            meanDeviation = time / 2;
+            return;
+        }
+        meanDeviation = WEIGHT * Math.abs( time - meanTime ) + ( 1 - WEIGHT ) * meanDeviation;
+        meanTime      = WEIGHT * time                        + ( 1 - WEIGHT ) * meanTime;
+    }
+    
+    /**
+     * @param numTasks the number of tasks in a batch.
+     * @return the batch's lease duration in nanoseconds; Long.MAX_VALUE, if no batch has completed.
+     */
+    synchronized long duration( final int numTasks )
+    {
+        if ( meanTime == 0 )
+        {
+            return Long.MAX_VALUE;
+        }
+        return Math.max( MIN_DURATION, (long) ( numTasks * ( meanTime + 4 * meanDeviation ) ) );
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package system;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The Space's result processing stage.
+ * Results are partitioned into shards by the id of the compose task they feed; 
+ * each shard has its own queue and processing thread.
+ * Thus, the results for any one compose task are processed in order, 
+ * one at a time, while results for unrelated compose tasks are processed in parallel.
+ * @author Peter Cappello
+ */
+final class ResultPipeline 
+{
+    static final public int NUM_SHARDS = Math.max( 2, Runtime.getRuntime().availableProcessors() );
+    
+    final private SpaceImpl space;
+    final private Shard[] shards = new Shard[ NUM_SHARDS ];
+    
+    ResultPipeline( final SpaceImpl space )
+    {
+        this.space = space;
+        for ( int i = 0; i < shards.length; i++ )
+        {
+            shards[ i ] = new Shard( i );
+            shards[ i ].start();
+        }
+    }
+    
+    /**
+     * Queue a result for processing.
+     * @param parentTask the task whose result this is.
+     * @param result the result.
+     * @param computerId the id of the computer that produced the result.
+     */
+    void put( final Task parentTask, final Return result, final int computerId )
+    {
+        final int shard = Math.floorMod( Long.hashCode( parentTask.composeId() ), shards.length );
+        shards[ shard ].put( new Entry( parentTask, result, computerId ) );
+    }
+    
+    /**
+     * @return the current queue depth of each shard.
+     */
+    int[] queueDepths()
+    {
+        final int[] depths = new int[ shards.length ];
+        for ( int i = 0; i < shards.length; i++ )
+        {
+            depths[ i ] = shards[ i ].queue.size();
+        }
+        return depths;
+    }
+    
+    /**
+     * @return the maximum queue depth of each shard, since the pipeline started.
+     */
+    int[] maxQueueDepths()
+    {
+        final int[] depths = new int[ shards.length ];
+        for ( int i = 0; i < shards.length; i++ )
+        {
+            depths[ i ] = shards[ i ].maxQueueDepth.get();
+        }
+        return depths;
+    }
+    
+    static final private class Entry
+    {
+        final private Task parentTask;
+        final private Return result;
+        final private int computerId;
+        
+        private Entry( final Task parentTask, final Return result, final int computerId )
+        {
+            this.parentTask = parentTask;
+            this.result = result;
+            this.computerId = computerId;
+        }
+    }
+    
+    private class Shard extends Thread
+    {
+        final private BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+        final private AtomicInteger maxQueueDepth = new AtomicInteger();
+        
+        private Shard( final int id ) 
+        { 
+            super( "ResultShard-" + id ); 
+            setDaemon( true ); // it does not keep the Space's JVM alive
+        }
+        
+        private void put( final Entry entry )
+        {
+            queue.add( entry );
+            maxQueueDepth.accumulateAndGet( queue.size(), Math::max );
+        }
+        
+        @Override public void run()
+        {
+            while ( true )
+            {
+                final Entry entry;
+                try { entry = queue.take(); }
+                catch ( InterruptedException ex ) 
+                { 
+                    Logger.getLogger( getClass().getName() )
+                          .log( Level.INFO, null, ex ); 
+                    continue;
+                }
+                try { space.processResultNow( entry.parentTask, entry.result, entry.computerId ); }
+                catch ( RuntimeException exception ) 
+                { 
+                    // a bad result fails its job, not the shard, which serves every job
+                    Logger.getLogger( getClass().getName() )
+                          .log( Level.SEVERE, "Result of task " + entry.parentTask.id() + " of job " + entry.parentTask.jobId() + " not processed.", exception ); 
+                    space.failJob( entry.parentTask.jobId(), exception );
+                }
+            }
+        }
+    }
+}
@@ -37,6 +37,8 @@ abstract public class Return implements Serializable
     private long taskRunTime;   // elapsed time
     private long t1;            // work
     private long tInf;          // critical path length
+    private int numTasks = 1;   // tasks executed to produce this Return
+    private long jobId;
     private Shared shared;
     
     public Shared shared() { return shared; }
@@ -58,14 +60,21 @@ abstract public class Return implements Serializable
     public long tInf() { return tInf; }
     public void tInf( final long tInf ) { this.tInf = tInf; }
     
+    public long jobId() { return jobId; }
+    public void jobId( final long jobId ) { this.jobId = jobId; }
+    
+    public int  numTasks() { return numTasks; }
+    public void numTasks( final int numTasks ) { this.numTasks = numTasks; }
+    
     public Return setIds( Task parentTask ){ return this; }
         
     /**
      *
      * @param parentTask
      * @param space the receiving the Temp objects.
+     * @param computerId the id of the computer that produced this Return.
      */
-    abstract public void process( final Task parentTask, final SpaceImpl space );
+    abstract public void process( final Task parentTask, final SpaceImpl space, final int computerId );
     
     @Override
     public String toString()
@@ -0,0 +1,274 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package system;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The ready tasks of the Space's jobs.
+ * Each job's ready tasks are in a queue made by the job's scheduling policy,
+ * which orders them, e.g., depth-first, breadth-first, or best-first.
+ * A computer takes from the jobs' queues in turn, so that no job starves.
+ * Tasks that have no producing computer, e.g., a root task, are put for SPACE.
+ * @author Peter Cappello
+ */
+final class Scheduler 
+{
+    static final public int SPACE = -1;
+    static final private long MISSED_TASK_WAIT = 1; // milliseconds
+    
+    final private Map<Long, JobQueue> queueMap = new ConcurrentHashMap<>();
+    final private List<JobQueue>      queues   = new CopyOnWriteArrayList<>();
+    final private Semaphore numReadyTasks = new Semaphore( 0 );
+    final private AtomicInteger turn = new AtomicInteger();
+    
+    /**
+     * Schedule a job's tasks: its tasks are put only after this.
+     * @param jobId the id of the job.
+     * @param policy the order in which the job's tasks are taken.
+     */
+    void addJob( final long jobId, final SchedulingPolicy policy )
+    {
+        final JobQueue queue = new JobQueue( policy.readyQueue() );
+        if ( queueMap.putIfAbsent( jobId, queue ) == null )
+        {
+            queues.add( queue );
+        }
+    }
+    
+    /**
+     * Stop scheduling a job's tasks: the job is complete, or failed.
+     * Its tasks that still are ready are marked done: take and poll drop them, 
+     * with their permits. No more are put; its queue is removed once it is empty.
+     * @param jobId the id of the job.
+     */
+    void removeJob( final long jobId )
+    {
+        final JobQueue queue = queueMap.remove( jobId );
+        if ( queue != null )
+        {
+            queue.lock.writeLock().lock();
+            try 
+            { 
+                queue.isRemoved = true; 
+                queue.readyQueue.forEach( Task::markDone );
+            }
+            finally { queue.lock.writeLock().unlock(); }
+        }
+    }
+    
+    /**
+     * A computer is gone: the tasks it produced are available to the other computers.
+     * @param computerId the id of the computer.
+     */
+    void unregister( final int computerId )
+    {
+        assert computerId != SPACE;
+        for ( JobQueue queue : queues )
+        {
+            queue.readyQueue.unregister( computerId );
+        }
+    }
+    
+    /**
+     * Put a ready task. A task whose job is not scheduled, e.g., has completed, is dropped.
+     * The task is put into its job's queue only while the job is scheduled:
+     * a removed job's queue, once empty, is dropped, and never polled again.
+     * @param computerId the id of the computer that produced the task.
+     * @param task the ready task.
+     */
+    void put( final int computerId, final Task task )
+    {
+        final JobQueue queue = queueMap.get( task.jobId() );
+        if ( queue == null )
+        {
+            return;
+        }
+        queue.lock.readLock().lock();
+        try
+        {
+            if ( queue.isRemoved )
+            {
+                return;
+            }
+            task.readyTime( System.nanoTime() );
+            queue.readyQueue.put( computerId, task );
+        }
+        finally { queue.lock.readLock().unlock(); }
+        numReadyTasks.release();
+    }
+    
+    /**
+     * Put ready tasks.
+     * The tasks are put in reverse order, so that, depth-first, the computer takes them in list order.
+     * @param computerId the id of the computer that produced the tasks.
+     * @param tasks the ready tasks.
+     */
+    void putAll( final int computerId, final List<? extends Task> tasks )
+    {
+        for ( int i = tasks.size() - 1; i >= 0; i-- )
+        {
+            put( computerId, tasks.get( i ) );
+        }
+    }
+    
+    /**
+     * Perform an action on each ready task of a job.
+     * @param jobId the id of the job.
+     * @param action the action.
+     */
+    void forEach( final long jobId, final Consumer<Task> action )
+    {
+        final JobQueue queue = queueMap.get( jobId );
+        if ( queue != null )
+        {
+            queue.readyQueue.forEach( action );
+        }
+    }
+    
+    /**
+     * Take a ready task for a computer, waiting if none is available.
+     * Tasks that are done, e.g., pruned, are dropped.
+     * @param computerId the id of the computer that will execute the task.
+     * @return a ready task.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    Task take( final int computerId ) throws InterruptedException
+    {
+        while ( true )
+        {
+            numReadyTasks.acquire();
+            final Task task = next( computerId );
+            if ( task == null )
+            {
+                Thread.sleep( MISSED_TASK_WAIT );
+            }
+            else if ( ! task.isDone() )
+            {
+                return task;
+            }
+        }
+    }
+    
+    /**
+     * Take a ready task for a computer, if one is available.
+     * Tasks that are done, e.g., pruned, are dropped.
+     * @param computerId the id of the computer that will execute the task.
+     * @return a ready task, or null if there is none.
+     */
+    Task poll( final int computerId )
+    {
+        while ( numReadyTasks.tryAcquire() )
+        {
+            final Task task = next( computerId );
+            if ( task == null )
+            {
+                return null;
+            }
+            if ( ! task.isDone() )
+            {
+                return task;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * @return the number of ready tasks.
+     */
+    int size() { return numReadyTasks.availablePermits(); }
+    
+    boolean isEmpty() { return size() == 0; }
+    
+    /**
+     * A put has released the permit that its caller acquired: its task is in some queue.
+     * Should no task be found, the permit is given back, rather than spun on.
+     * @return a task; null, if none was found.
+     */
+    private Task next( final int computerId )
+    {
+        final Task task = nextOrNull( computerId );
+        if ( task == null )
+        {
+            numReadyTasks.release();
+            Logger.getLogger( getClass().getName() )
+                  .log( Level.WARNING, "A ready task permit has no task." );
+        }
+        return task;
+    }
+    
+    private Task nextOrNull( final int computerId )
+    {
+        final Object[] jobQueues = queues.toArray();
+        if ( jobQueues.length == 0 )
+        {
+            return null;
+        }
+        final int start = Math.floorMod( turn.getAndIncrement(), jobQueues.length );
+        for ( int i = 0; i < jobQueues.length; i++ )
+        {
+            final JobQueue queue = (JobQueue) jobQueues[ ( start + i ) % jobQueues.length ];
+            final Task task = queue.readyQueue.poll( computerId );
+            if ( task != null )
+            {
+                return task;
+            }
+            if ( queue.isRemoved )
+            {
+                queue.lock.writeLock().lock();
+                try
+                {
+                    if ( queue.readyQueue.isEmpty() )
+                    {
+                        queues.remove( queue );
+                    }
+                }
+                finally { queue.lock.writeLock().unlock(); }
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Puts share the read lock; removing the job, and dropping its empty queue, take the write lock.
+     */
+    static final private class JobQueue
+    {
+        final private SchedulingPolicy.ReadyQueue readyQueue;
+        final private ReadWriteLock lock = new ReentrantReadWriteLock();
+        private volatile boolean isRemoved;
+        
+        private JobQueue( final SchedulingPolicy.ReadyQueue readyQueue ) { this.readyQueue = readyQueue; }
+    }
+}
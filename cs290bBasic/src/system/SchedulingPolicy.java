@@ -0,0 +1,276 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package system;
+
+import java.io.Serializable;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * The order in which the ready tasks of a job are taken: 
+ * a job's policy makes the queue of its ready tasks.
+ * The policy of a job is chosen when it is submitted.
+ * @author Peter Cappello
+ */
+public interface SchedulingPolicy extends Serializable
+{
+    /**
+     * Breadth-first: tasks are taken in the order they became ready.
+     */
+    static final public SchedulingPolicy FIFO = new Fifo();
+    
+    /**
+     * Depth-first, with work stealing: the children of a task are put on a 
+     * deque of the computer that produced them; a computer takes the newest 
+     * task of its own deque, and, when its deque is empty, steals the 
+     * oldest task of another deque. This is the default.
+     */
+    static final public SchedulingPolicy LIFO = new Lifo();
+    
+    /**
+     * Best-first: tasks are taken in increasing order of their priority, 
+     * e.g., the lower bound of a branch-and-bound task.
+     */
+    static final public SchedulingPolicy BEST_FIRST = new BestFirst();
+    
+    /**
+     * @return a new empty queue of ready tasks, ordered by this policy.
+     */
+    ReadyQueue readyQueue();
+    
+    /**
+     * A queue of the ready tasks of a job. Its methods are invoked concurrently.
+     */
+    public interface ReadyQueue
+    {
+        /**
+         * @param computerId the id of the computer that produced the task, or Scheduler.SPACE.
+         * @param task a ready task.
+         */
+        void put( int computerId, Task task );
+        
+        /**
+         * @param computerId the id of the computer that will execute the task.
+         * @return the next ready task for the computer; null, if there is none.
+         */
+        Task poll( int computerId );
+        
+        /**
+         * A computer is gone: any tasks reserved for it are available to other computers.
+         * @param computerId the id of the computer.
+         */
+        default void unregister( int computerId ) {}
+        
+        boolean isEmpty();
+        
+        /**
+         * Perform an action on each task in the queue, as it is traversed concurrently with other operations.
+         * @param action the action.
+         */
+        void forEach( Consumer<Task> action );
+    }
+    
+    static final class Fifo implements SchedulingPolicy
+    {
+        static final private long serialVersionUID = 1L;
+        
+        @Override
+        public ReadyQueue readyQueue()
+        {
+            return new ReadyQueue()
+            {
+                final private Queue<Task> queue = new ConcurrentLinkedQueue<>();
+                
+                @Override public void put( final int computerId, final Task task ) { queue.add( task ); }
+                
+                @Override public Task poll( final int computerId ) { return queue.poll(); }
+                
+                @Override public boolean isEmpty() { return queue.isEmpty(); }
+                
+                @Override public void forEach( final Consumer<Task> action ) { queue.forEach( action ); }
+            };
+        }
+    }
+    
+    static final class Lifo implements SchedulingPolicy
+    {
+        static final private long serialVersionUID = 1L;
+        
+        @Override
+        public ReadyQueue readyQueue()
+        {
+            return new ReadyQueue()
+            {
+                final private Map<Integer, Deque<Task>> dequeMap = new ConcurrentHashMap<>();
+                
+                /**
+                 * The task is added within the map's update of the computer's entry, 
+                 * so that unregister never removes the deque between its lookup and the add.
+                 */
+                @Override 
+                public void put( final int computerId, final Task task ) 
+                { 
+                    dequeMap.compute( computerId, ( id, deque ) -> 
+                    {
+                        final Deque<Task> computerDeque = deque == null ? new ConcurrentLinkedDeque<>() : deque;
+                        computerDeque.addLast( task );
+                        return computerDeque;
+                    } ); 
+                }
+                
+                @Override 
+                public Task poll( final int computerId ) 
+                { 
+                    final Deque<Task> ownDeque = dequeMap.get( computerId );
+                    if ( ownDeque != null )
+                    {
+                        final Task task = ownDeque.pollLast();
+                        if ( task != null )
+                        {
+                            return task;
+                        }
+                    }
+                    return steal();
+                }
+                
+                private Task steal()
+                {
+                    final Object[] victims = dequeMap.values().toArray();
+                    if ( victims.length == 0 )
+                    {
+                        return null;
+                    }
+                    final int start = ThreadLocalRandom.current().nextInt( victims.length );
+                    for ( int i = 0; i < victims.length; i++ )
+                    {
+                        @SuppressWarnings( "unchecked" )
+                        final Deque<Task> victim = (Deque<Task>) victims[ ( start + i ) % victims.length ];
+                        final Task task = victim.pollFirst();
+                        if ( task != null )
+                        {
+                            return task;
+                        }
+                    }
+                    return null;
+                }
+                
+                @Override 
+                public void unregister( final int computerId )
+                {
+                    final Deque<Task> deque = dequeMap.remove( computerId );
+                    if ( deque == null )
+                    {
+                        return;
+                    }
+                    for ( Task task = deque.pollFirst(); task != null; task = deque.pollFirst() )
+                    {
+                        put( Scheduler.SPACE, task );
+                    }
+                }
+                
+                @Override 
+                public boolean isEmpty() 
+                { 
+                    for ( Deque<Task> deque : dequeMap.values() )
+                    {
+                        if ( ! deque.isEmpty() )
+                        {
+                            return false;
+                        }
+                    }
+                    return true;
+                }
+                
+                @Override
+                public void forEach( final Consumer<Task> action ) 
+                { 
+                    for ( Deque<Task> deque : dequeMap.values() )
+                    {
+                        deque.forEach( action );
+                    }
+                }
+            };
+        }
+    }
+    
+    /**
+     * Tasks of equal priority are taken in the order they became ready.
+     */
+    static final class BestFirst implements SchedulingPolicy
+    {
+        static final private long serialVersionUID = 1L;
+        
+        @Override
+        public ReadyQueue readyQueue()
+        {
+            return new ReadyQueue()
+            {
+                final private AtomicLong sequenceNumbers = new AtomicLong();
+                final private Queue<Entry> queue = new PriorityBlockingQueue<>( 64, 
+                        Comparator.comparingDouble( ( Entry entry ) -> entry.priority )
+                                  .thenComparingLong( entry -> entry.sequenceNumber ) );
+                
+                @Override 
+                public void put( final int computerId, final Task task ) 
+                { 
+                    queue.add( new Entry( task, sequenceNumbers.getAndIncrement() ) ); 
+                }
+                
+                @Override 
+                public Task poll( final int computerId ) 
+                { 
+                    final Entry entry = queue.poll();
+                    return entry == null ? null : entry.task;
+                }
+                
+                @Override public boolean isEmpty() { return queue.isEmpty(); }
+                
+                @Override public void forEach( final Consumer<Task> action ) { queue.forEach( entry -> action.accept( entry.task ) ); }
+            };
+        }
+        
+        static final private class Entry
+        {
+            final private Task task;
+            final private double priority;
+            final private long sequenceNumber;
+            
+            private Entry( final Task task, final long sequenceNumber )
+            {
+                this.task = task;
+                this.priority = task.priority();
+                this.sequenceNumber = sequenceNumber;
+            }
+        }
+    }
+}
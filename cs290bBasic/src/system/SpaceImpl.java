@@ -23,26 +23,47 @@
  */
 package system;
 
-import api.NullShared;
+import api.JobHandle;
 import api.RemoteEventListener;
+import api.ReturnDecomposition;
 import api.ReturnValue;
 import api.Shared;
 import api.Space;
 import api.TaskCompose;
-import applications.euclideantsp.SharedTour;
+import api.TaskRecursive;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.rmi.NoSuchObjectException;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
+import metrics.Histogram;
+import metrics.Meter;
+import metrics.Metrics;
+import transport.NioSpaceEndpoint;
+import util.ConcurrentLongHashMap;
 
 /**
  * SpaceImpl implements the space for coordinating sending/receiving Task and Result objects.
@@ -50,99 +71,255 @@ import java.util.logging.Logger;
  */
 public final class SpaceImpl extends UnicastRemoteObject implements Space
 {
-    static final public int PROXIES_PER_PROCESSOR = 2;
     static final public int FINAL_RETURN_VALUE = -1;
+    static final public long NO_JOB = -1; // the root compose id of a job that has completed, or failed: ids are positive
+    static final private long HEARTBEAT_PERIOD = 1000; // milliseconds
+    static final private long CONTROL_PERIOD   =  500; // milliseconds
+    static final private long LEASE_PERIOD     =  100; // milliseconds
+    static final private int  TASK_BUDGET      = Integer.getInteger( "space.taskBudget", 1 << 20 ); // ready + waiting tasks
+    static final private int  LOW_WATER_MARK   = Integer.getInteger( "space.taskLowWaterMark", TASK_BUDGET / 2 );
+    static final private int  NUM_COMPOSERS    = Math.max( 2, Runtime.getRuntime().availableProcessors() );
+    static final private int  MAX_QUEUED_COMPOSES = 1 << 12;
+    static final private long MAX_COMPOSE_TIME = TimeUnit.MICROSECONDS.toNanos( Long.getLong( "space.maxComposeTime", 1000 ) );
     static final private AtomicInteger computerIds = new AtomicInteger();
     
-    final private AtomicInteger taskIds = new AtomicInteger();
-    final private BlockingQueue<Task>     readyTaskQ = new LinkedBlockingQueue<>();
-    final private BlockingQueue<ReturnValue> resultQ = new LinkedBlockingQueue<>();
-    final private BlockingQueue<SharedTour>   eventQ = new LinkedBlockingQueue<>();
+    final private long spaceId = ThreadLocalRandom.current().nextInt( 1, 1 << 15 );
+    final private Metrics metrics = new Metrics( "space-" + spaceId );
+    final private Histogram queueWaitTimes        = metrics.histogram( "queueWaitTime" );   // nanoseconds, ready to dispatched
+    final private Histogram dispatchTimes         = metrics.histogram( "dispatchTime" );    // nanoseconds per remote call
+    final private Histogram taskRunTimes          = metrics.histogram( "taskRunTime" );     // nanoseconds, as reported by computers
+    final private Histogram resultProcessingTimes = metrics.histogram( "resultProcessingTime" ); // nanoseconds
+    final private AtomicLong taskIds = new AtomicLong( spaceId << 48 );
+    final private Scheduler                scheduler = new Scheduler();
     final private Map<Computer, ComputerProxy> computerProxies = Collections.synchronizedMap( new HashMap<>() );
-    final private Map<UUID, TaskCompose>        waitingTaskMap = Collections.synchronizedMap( new HashMap<>() );
-    final private AtomicInteger numTasks = new AtomicInteger();
-    final private ComputerImpl computerInternal;
-    final private Boolean sharedLock = true;
-          private UUID rootTaskReturnValue;
-          private Shared shared = new NullShared();
-          private long tInf;
+    final private ConcurrentLongHashMap<TaskCompose> waitingTaskMap = new ConcurrentLongHashMap<>();
+    final private ConcurrentLongHashMap<Job>                   jobs = new ConcurrentLongHashMap<>();
+    final private Map<Class<?>, AdaptiveGranularity> granularities = new ConcurrentHashMap<>(); // root task class ->
+    final private Map<Class<?>, Long> composeRunTimes = new ConcurrentHashMap<>(); // compose class -> mean nanoseconds
+    final private AtomicInteger numIdleComputers = new AtomicInteger();
+    final private AtomicBoolean isOverBudget = new AtomicBoolean();
+    final private ComputerImpl computerInternal = new ComputerImpl( this );
+    final private ResultPipeline resultPipeline = new ResultPipeline( this );
+    final private Journal journal; // null, if the Space does not journal
+    final private Leases leases = new Leases();
+    final private ScheduledExecutorService monitor = Executors.newSingleThreadScheduledExecutor( runnable -> 
+    {
+        final Thread thread = new Thread( runnable, "Monitor" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+    final private ThreadPoolExecutor composes = new ThreadPoolExecutor( NUM_COMPOSERS, NUM_COMPOSERS, 0, TimeUnit.MILLISECONDS, 
+            new ArrayBlockingQueue<>( MAX_QUEUED_COMPOSES ), runnable -> 
+    {
+        final Thread thread = new Thread( runnable, "Compose" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+    final private ExecutorService broadcasts = Executors.newCachedThreadPool( runnable -> 
+    {
+        final Thread thread = new Thread( runnable, "SharedBroadcast" );
+        thread.setDaemon( true );
+        return thread;
+    } );
     
     public SpaceImpl() throws RemoteException 
     {
-        computerInternal = new ComputerImpl( this );
+        journal = null;
+        start();
+    }
+    
+    /**
+     * A Space that journals its state in a directory: if the directory holds 
+     * the journal of a Space that failed, its unfinished jobs are resumed.
+     * @param journalDirectory the directory of the journal.
+     * @throws IOException 
+     */
+    public SpaceImpl( final Path journalDirectory ) throws IOException 
+    {
+        journal = new Journal( journalDirectory );
+        recover( journal.recover() );
+        start();
+    }
+    
+    private void start()
+    {
+        metrics.gauge( "readyTasks",        scheduler::size );
+        metrics.gauge( "waitingTasks",      waitingTaskMap::size );
+        metrics.gauge( "resultQueueDepth",  () -> IntStream.of( resultPipeline.queueDepths() ).sum() );
+        metrics.gauge( "composeQueueDepth", () -> composes.getQueue().size() );
+        metrics.gauge( "computers",         computerProxies::size );
+        metrics.gauge( "idleComputers",     numIdleComputers::get );
+        metrics.gauge( "jobs",              jobs::size );
+        monitor.scheduleWithFixedDelay( this::checkComputers, HEARTBEAT_PERIOD, HEARTBEAT_PERIOD, TimeUnit.MILLISECONDS );
+        monitor.scheduleWithFixedDelay( this::adjustWorkerProxies, CONTROL_PERIOD, CONTROL_PERIOD, TimeUnit.MILLISECONDS );
+        monitor.scheduleWithFixedDelay( this::checkLeases, LEASE_PERIOD, LEASE_PERIOD, TimeUnit.MILLISECONDS );
         Logger.getLogger( getClass().getName() )
               .log( Level.INFO, "Space started." );
     }
     
     public Computer computer() { return computerInternal; }
     
+    /**
+     * Unregister the metrics of this Space and of its internal computer.
+     */
+    public void close()
+    {
+        computerInternal.close();
+        metrics.close();
+    }
+    
     /**
      * Compute a Task and return its Return.
-     * Precondition: rootTask is the only computation the Space is servicing.
+     * The Space may be servicing other jobs concurrently.
      * 
      * @param rootTask task that encapsulates the overall computation.
      * @return the Task's Return object.
      */
-    @Override public ReturnValue compute( Task rootTask )
+    @Override public ReturnValue compute( Task rootTask ) throws RemoteException
     {
-        assert readyTaskQ.isEmpty() && waitingTaskMap.isEmpty();
-        initTimeMeasures();
-        execute( rootTask );
-        return take();
+        return compute( rootTask, null, null );
     }
     
     /**
      *
      * @param rootTask task that encapsulates the overall computation.
-     * Precondition: rootTask is the only computation the Space is servicing.
-     * @param shared
-     * @param remoteEventConsumer
+     * The Space may be servicing other jobs concurrently.
+     * @param shared the job's initial shared object; null, if the job does not use one.
+     * @param remoteEventConsumer receives the job's newer shared objects; null, if none.
      * @return
      */
     @Override public ReturnValue compute( Task rootTask, Shared shared, RemoteEventListener remoteEventConsumer )
+            throws RemoteException
     {
-        assert readyTaskQ.isEmpty() && waitingTaskMap.isEmpty();
-        ListenerProxy listenerProxy = new ListenerProxy( remoteEventConsumer );
-        listenerProxy.start();
-        this.shared = shared;
-        eventQ.add( (SharedTour) shared );
-        initTimeMeasures();
-        execute( rootTask );
-        ReturnValue result = take();
-        reportTimeMeasures( result );
-        return result;
+        return execute( rootTask, shared, remoteEventConsumer, SchedulingPolicy.LIFO ).take();
     }
     
     /**
-     * Put a task into the Task queue.
+     * Submit a job, returning immediately.
+     * @param rootTask task that encapsulates the overall computation.
+     * @return a handle on the job.
+     * @throws RemoteException
+     */
+    @Override public JobHandle submit( Task rootTask ) throws RemoteException
+    {
+        return submit( rootTask, null, null );
+    }
+    
+    /**
+     * Submit a job, returning immediately.
+     * @param rootTask task that encapsulates the overall computation.
+     * @param shared the job's initial shared object; null, if the job does not use one.
+     * @param remoteEventConsumer receives the job's newer shared objects; null, if none.
+     * @return a handle on the job.
+     * @throws RemoteException
+     */
+    @Override public JobHandle submit( Task rootTask, Shared shared, RemoteEventListener remoteEventConsumer )
+            throws RemoteException
+    {
+        return execute( rootTask, shared, remoteEventConsumer, SchedulingPolicy.LIFO );
+    }
+    
+    /**
+     * Submit a job, returning immediately.
+     * @param rootTask task that encapsulates the overall computation.
+     * @param shared the job's initial shared object; null, if the job does not use one.
+     * @param remoteEventConsumer receives the job's newer shared objects; null, if none.
+     * @param policy the order in which the job's ready tasks are taken.
+     * @return a handle on the job.
+     * @throws RemoteException
+     */
+    @Override public JobHandle submit( Task rootTask, Shared shared, RemoteEventListener remoteEventConsumer, 
+                                       SchedulingPolicy policy ) throws RemoteException
+    {
+        return execute( rootTask, shared, remoteEventConsumer, policy );
+    }
+    
+    /**
+     * Make a job for a root task, and put the task into the Task queue.
      * @param task
      */
-    private void execute( Task rootTask ) 
+    private Job execute( final Task rootTask, final Shared shared, final RemoteEventListener remoteEventConsumer,
+                         final SchedulingPolicy policy ) throws RemoteException
     { 
-        rootTaskReturnValue = UUID.randomUUID();
-        rootTask.composeId( rootTaskReturnValue );
-        readyTaskQ.add( rootTask );
+        final Job job = new Job( makeTaskId(), makeTaskId(), granularity( rootTask ), shared, remoteEventConsumer );
+        jobs.put( job.id(), job );
+        rootTask.jobId( job.id() );
+        rootTask.composeId( job.rootComposeId() );
+        rootTask.id( makeTaskId() );
+        if ( journal != null )
+        {
+            journal.job( job.id(), job.rootComposeId(), job.shared(), policy, job.granularity().get(), rootTask );
+        }
+        scheduler.addJob( job.id(), policy );
+        scheduler.put( Scheduler.SPACE, rootTask );
+        return job;
     }
-    
-    @Override synchronized public void putAll( final List<? extends Task> taskList ) { readyTaskQ.addAll( taskList ); }
 
     /**
-     * Take a Return from the Return queue.
-     * @return a Return object.
+     * Resume the unfinished jobs recovered from the journal: their waiting 
+     * compose tasks wait again; their ready tasks are ready again; 
+     * a compose task that has all its inputs is executed.
+     * The failed Space's id may be this one's: ids are made after the largest 
+     * recovered id that this Space could have made.
      */
-    @Override public ReturnValue take() 
+    private void recover( final Journal.State state ) throws RemoteException
     {
-        try { return resultQ.take(); } 
-        catch ( InterruptedException ignore ) 
+        final List<TaskCompose> readyComposes = new ArrayList<>();
+        long maxId = taskIds.get();
+        for ( Journal.JobState jobState : state.jobs() )
         {
+            maxId = maxId( maxId, jobState.id() );
+            maxId = maxId( maxId, jobState.rootComposeId() );
+            for ( Task task : jobState.tasks() )
+            {
+                maxId = maxId( maxId( maxId, task.id() ), task.composeId() );
+            }
+            for ( Task task : jobState.composes() )
+            {
+                maxId = maxId( maxId( maxId, task.id() ), task.composeId() );
+            }
+            final Task someTask = jobState.tasks().stream().findAny().orElse( null );
+            final AdaptiveGranularity granularity = someTask == null 
+                                                  ? new AdaptiveGranularity( jobState.cutoff() ) 
+                                                  : granularity( someTask );
+            final Job job = new Job( jobState.id(), jobState.rootComposeId(), granularity, jobState.shared(), null );
+            jobs.put( job.id(), job );
+            scheduler.addJob( job.id(), jobState.policy() );
+            for ( Task task : jobState.composes() )
+            {
+                final TaskCompose compose = (TaskCompose) task;
+                waitingTaskMap.put( compose.id(), compose );
+                if ( compose.args() != null )
+                {
+                    readyComposes.add( compose );
+                }
+            }
+            scheduler.putAll( Scheduler.SPACE, new ArrayList<>( jobState.tasks() ) );
             Logger.getLogger( getClass().getName() )
-                  .log(Level.INFO, null, ignore );
+                  .log( Level.INFO, "Recovered job {0}: {1} ready tasks, {2} waiting compose tasks.", 
+                        new Object[]{ job.id(), jobState.tasks().size(), jobState.composes().size() } );
+        }
+        taskIds.set( maxId );
+        for ( TaskCompose compose : readyComposes )
+        {
+            removeWaitingTask( compose.id() );
+            putReadyTask( compose );
         }
-        assert false; // should never reach this point
-        return null;
     }
     
-    public Shared shared() { return shared; }
+    /**
+     * @return the larger of maxId and id, if this Space could have made id; else maxId.
+     */
+    private long maxId( final long maxId, final long id )
+    {
+        return id >>> 48 == spaceId ? Math.max( maxId, id ) : maxId;
+    }
+    
+    /**
+     * @param jobId the id of a job.
+     * @return the job, if it is unfinished; else null.
+     */
+    @Override public JobHandle job( final long jobId ) { return jobs.get( jobId ); }
 
     /**
      * Register Computer with Space.  
@@ -153,7 +330,7 @@ public final class SpaceImpl extends UnicastRemoteObject implements Space
      */
     @Override public void register( Computer computer, int numProcessors ) throws RemoteException
     {
-        final ComputerProxy computerProxy = new ComputerProxy( computer, PROXIES_PER_PROCESSOR* numProcessors );
+        final ComputerProxy computerProxy = new ComputerProxy( computer, numProcessors );
         computerProxies.put( computer, computerProxy );
         computerProxy.startWorkerProxies();
         Logger.getLogger( getClass().getName() )
@@ -161,44 +338,244 @@ public final class SpaceImpl extends UnicastRemoteObject implements Space
     }
     
     /**
-     *
-     * @param args unused.
+     * Accept computers by RMI, on Space.PORT, and by NIO, on NioSpaceEndpoint.PORT.
+     * @param args optional: the journal directory.
      * @throws Exception
      */
     public static void main( final String[] args ) throws Exception
     {
         System.setSecurityManager( new SecurityManager() );
+        final SpaceImpl space = args.length > 0 ? new SpaceImpl( Paths.get( args[ 0 ] ) ) : new SpaceImpl();
+        Runtime.getRuntime().addShutdownHook( new Thread( space::close ) );
         LocateRegistry.createRegistry( Space.PORT )
-                      .rebind(Space.SERVICE_NAME, new SpaceImpl() );
+                      .rebind(Space.SERVICE_NAME, space );
+        new NioSpaceEndpoint( space, NioSpaceEndpoint.PORT ).start();
     }
 
-    synchronized public void processResult( final Task parentTask, final Return result )
+    /**
+     * A computer's batches in flight are lost if it fails after accepting them.
+     * Find out if each computer with batches in flight that has not 
+     * returned one lately still is alive.
+     */
+    private void checkComputers()
+    {
+        for ( ComputerProxy computerProxy : computerProxies() )
+        {
+            computerProxy.checkAlive();
+        }
+    }
+    
+    /**
+     * Near the end of a job, no task is ready, and some computer is idle:
+     * a straggler holding an overdue batch stretches the job's critical path.
+     * Re-execute the tasks of each overdue batch, once, on an idle computer; 
+     * the first result of each task is processed, the other is ignored.
+     */
+    private void checkLeases()
+    {
+        if ( ! scheduler.isEmpty() || numIdleComputers.get() == 0 )
+        {
+            return;
+        }
+        for ( ComputerProxy computerProxy : computerProxies() )
+        {
+            computerProxy.checkLeases();
+        }
+    }
+    
+    /**
+     * @param straggler a computer proxy with an overdue batch.
+     * @return an idle computer proxy other than straggler, or null if there is none.
+     */
+    private ComputerProxy idleComputerProxy( final ComputerProxy straggler )
+    {
+        for ( ComputerProxy computerProxy : computerProxies() )
+        {
+            if ( computerProxy != straggler && computerProxy.isIdle() )
+            {
+                return computerProxy;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Adjust the number of worker proxies of each computer.
+     */
+    private void adjustWorkerProxies()
+    {
+        for ( ComputerProxy computerProxy : computerProxies() )
+        {
+            computerProxy.adjustWorkerProxies();
+        }
+    }
+    
+    /**
+     * @return the number of active worker proxies of each registered computer, by computer id.
+     */
+    public Map<Integer, Integer> numWorkerProxies()
+    {
+        final Map<Integer, Integer> numWorkerProxies = new TreeMap<>();
+        for ( ComputerProxy computerProxy : computerProxies() )
+        {
+            numWorkerProxies.put( computerProxy.computerId, computerProxy.numWorkerProxies() );
+        }
+        return numWorkerProxies;
+    }
+    
+    private List<ComputerProxy> computerProxies()
+    {
+        synchronized ( computerProxies ) { return new ArrayList<>( computerProxies.values() ); }
+    }
+    
+    /**
+     * Queue a result for processing by the result pipeline.
+     * @param parentTask the task whose result this is.
+     * @param result the result.
+     * @param computerId the id of the computer that produced the result.
+     */
+    public void processResult( final Task parentTask, final Return result, final int computerId )
     { 
-        result.process( parentTask, this );
-        shared = newerShared( result.shared() );
-//        t1 += result.taskRunTime();
-        numTasks.getAndIncrement();
+        if ( Trace.isEnabled() )
+        {
+            parentTask.returnTime( System.nanoTime() );
+        }
+        resultPipeline.put( parentTask, result, computerId );
     }
     
-    private Shared newerShared( final Shared that )
+    /**
+     * Process a result. Invoked by the result pipeline shard of the result's compose task.
+     */
+    void processResultNow( final Task parentTask, final Return result, final int computerId )
+    { 
+        final long startTime = System.nanoTime();
+        final Job job = jobs.get( parentTask.jobId() );
+        if ( job == null )
+        {
+            return; // the job already has completed.
+        }
+        job.addTasks( result.numTasks() );
+        if ( job.newerShared( result.shared() ) )
+        {
+            if ( journal != null )
+            {
+                journal.shared( job.id(), job.shared() );
+            }
+            broadcastShared( job.id() );
+            prune( job );
+        }
+        final boolean isDecomposition = result instanceof ReturnDecomposition;
+        if ( job.trace() != null && ! isDecomposition ) 
+        {
+            job.trace().add( parentTask, result, computerId ); // before it may complete the job
+        }
+        result.process( parentTask, this, computerId );
+        if ( job.trace() != null && isDecomposition ) 
+        {
+            job.trace().add( parentTask, result, computerId ); // after its compose task has its id
+        }
+        resultProcessingTimes.record( System.nanoTime() - startTime );
+    }
+    
+    /**
+     * Branch-and-bound: prune the ready tasks of a job that its newer shared object bounds.
+     * A pruned task is not executed: its pruned value is processed as its result,
+     * so that its compose task still completes.
+     */
+    private void prune( final Job job )
     {
-        synchronized ( sharedLock )
+        final Shared shared = job.shared();
+        final double bound = shared.bound();
+        final List<Task> dominatedTasks = new ArrayList<>();
+        scheduler.forEach( job.id(), task -> 
         {
-            if ( this.shared.isOlderThan( that ) )
+            if ( task.bound() >= bound && ! task.isDone() )
             {
-                eventQ.add( (SharedTour) that );
-                return that;
+                dominatedTasks.add( task );
             }
-            else
+        } );
+        final List<Task> prunedTasks = new ArrayList<>();
+        final List<ReturnValue> values = new ArrayList<>();
+        for ( Task task : dominatedTasks )
+        {
+            final ReturnValue value = task.pruned( shared );
+            if ( value != null && task.markDone() )
             {
-                return this.shared;
+                value.numTasks( 0 );
+                prunedTasks.add( task );
+                values.add( value );
             }
         }
+        job.addPrunedTasks( prunedTasks.size() ); // before the values may complete the job
+        for ( int i = 0; i < prunedTasks.size(); i++ )
+        {
+            processResult( prunedTasks.get( i ), values.get( i ), Scheduler.SPACE );
+        }
     }
     
-    public int makeTaskId() { return taskIds.incrementAndGet(); }
+    /**
+     * Push a job's newly adopted shared object to each computer, without waiting:
+     * new bounds reach computers right away, rather than with their next batch.
+     */
+    private void broadcastShared( final long jobId )
+    {
+        for ( ComputerProxy computerProxy : computerProxies() )
+        {
+            broadcasts.execute( () -> 
+            {
+                try { computerProxy.pushShared( jobId ); }
+                catch ( RemoteException ignore ) { /* The heartbeat detects failed computers. */ }
+            } );
+        }
+    }
+    
+    /**
+     * @return the current queue depth of each result pipeline shard.
+     */
+    public int[] resultQueueDepths() { return resultPipeline.queueDepths(); }
+    
+    
+    /**
+     * Task ids are unique within a Space: the Space's id, in the 15 bits 
+     * below the sign bit, followed by a 48 bit counter.
+     * @return a new task id.
+     */
+    public long makeTaskId() { return taskIds.incrementAndGet(); }
+    
+    /**
+     * @param numIds the number of ids to make.
+     * @return the first of numIds consecutive new task ids.
+     */
+    public long makeTaskIds( final int numIds ) { return taskIds.getAndAdd( numIds ) + 1; }
+    
+    /**
+     * Journal a decomposition, before its compose task waits and its tasks are ready.
+     * @param parentTask the decomposed task.
+     * @param compose the compose task, with its id.
+     * @param tasks the tasks, with their ids.
+     */
+    public void journalDecomposition( final Task parentTask, final TaskCompose compose, final List<? extends Task> tasks )
+    {
+        if ( journal != null )
+        {
+            journal.decomposition( parentTask, compose, tasks );
+        }
+    }
     
-    public TaskCompose getCompose( final UUID composeId ) { return waitingTaskMap.get( composeId ); }
+    /**
+     * Journal a value, before it is an input of its compose task.
+     * @param task the task whose value it is.
+     * @param value the value.
+     */
+    public void journalValue( final Task task, final ReturnValue value )
+    {
+        if ( journal != null )
+        {
+            journal.value( task, value );
+        }
+    }
+    
+    public TaskCompose getCompose( final long composeId ) { return waitingTaskMap.get( composeId ); }
             
     public void putCompose( final TaskCompose compose )
     {
@@ -206,131 +583,589 @@ public final class SpaceImpl extends UnicastRemoteObject implements Space
         waitingTaskMap.put( compose.id(), compose );
     }
     
+    /**
+     * Execute a ready task: a space-callable task on the Space's compose executor, 
+     * so that result processing never waits on it; otherwise, or if its class's 
+     * mean run time exceeds MAX_COMPOSE_TIME, or if the executor's queue is full, 
+     * on a computer.
+     * @param task a task whose inputs are set.
+     */
     public void putReadyTask( final Task task ) 
     { 
-        assert waitingTaskMap.get( task.composeId() ) != null 
-            || task.composeId() == rootTaskReturnValue : task.composeId();
+        final long rootComposeId = rootTaskReturnValue( task.jobId() );
+        if ( rootComposeId == NO_JOB )
+        {
+            return; // the job has completed, or failed.
+        }
+        assert waitingTaskMap.get( task.composeId() ) != null || task.composeId() == rootComposeId : task.composeId();
+        if ( Configuration.SPACE_CALLABLE && task.isSpaceCallable() 
+          && composeRunTimes.getOrDefault( task.getClass(), 0L ) <= MAX_COMPOSE_TIME )
+        {
+            try 
+            { 
+                task.readyTime( System.nanoTime() );
+                composes.execute( () -> executeReadyTask( task ) ); 
+                return;
+            }
+            catch ( RejectedExecutionException full ) {}
+        }
+        scheduler.put( Scheduler.SPACE, task );
+    }
+    
+    private void executeReadyTask( final Task task )
+    {
+        final Job job = jobs.get( task.jobId() );
+        if ( job == null )
+        {
+            return; // the job already has completed.
+        }
         try 
         { 
-            processResult( task, computer().execute( task, shared() ) );
+            task.dispatchTime( System.nanoTime() );
+            final Return result = computer().execute( task, job.shared() );
+            composeRunTime( task, result.taskRunTime() );
+            processResult( task, result, Scheduler.SPACE );
         }
         catch ( RemoteException ignore ) { /* Not a Remote invocation. */ }  
+        catch ( RuntimeException exception ) 
+        { 
+            Logger.getLogger( getClass().getName() )
+                  .log( Level.SEVERE, "Task " + task.id() + " of job " + task.jobId() + " threw.", exception );
+            failJob( task.jobId(), exception );
+        }
     }
     
-    public void putReadyTasks( final List<? extends Task> tasks ) { readyTaskQ.addAll( tasks ); }
+    /**
+     * Update the mean run time of a space-callable task's class.
+     */
+    private void composeRunTime( final Task task, final long taskRunTime )
+    {
+        if ( task.isSpaceCallable() )
+        {
+            composeRunTimes.merge( task.getClass(), taskRunTime, ( mean, time ) -> ( 3 * mean + time ) / 4 );
+        }
+    }
     
-    public void removeWaitingTask( final UUID composeId ) { waitingTaskMap.remove( composeId ); }
+    public void putReadyTasks( final int computerId, final List<? extends Task> tasks ) { scheduler.putAll( computerId, tasks ); }
     
-    public void putResult( final ReturnValue result ) { resultQ.add( result ); }
+    public void removeWaitingTask( final long composeId ) { waitingTaskMap.remove( composeId ); }
     
-    public void tInf( final long tInf ) { this.tInf = tInf; }
+    /**
+     * Put the result of a job.
+     * @param jobId the job's id.
+     * @param result the value of the job's root task.
+     */
+    public void putResult( final long jobId, final ReturnValue result ) 
+    { 
+        final Job job = jobs.remove( jobId );
+        scheduler.removeJob( jobId );
+        if ( job != null && job.trace() != null )
+        {
+            writeTrace( job ); // before its client has the result
+        }
+        if ( job != null && job.putResult( result ) )
+        {
+            job.reportTimeMeasures( result, resultPipeline.maxQueueDepths() );
+            forgetShared( jobId );
+        }
+    }
     
-    private void initTimeMeasures()
+    /**
+     * The computers forget a job's shared object: the job has completed, or failed.
+     */
+    private void forgetShared( final long jobId )
     {
-        numTasks.getAndSet( 0 );
-        tInf = 0;
+        computerInternal.forget( jobId );
+        for ( ComputerProxy computerProxy : computerProxies() )
+        {
+            computerProxy.forgetShared( jobId );
+        }
     }
     
-    public UUID rootTaskReturnValue() { return rootTaskReturnValue; }
+    /**
+     * Fail a job: a task of it threw. Its client's take throws.
+     * @param jobId the job's id.
+     * @param cause why the job failed.
+     */
+    void failJob( final long jobId, final Throwable cause )
+    {
+        final Job job = jobs.remove( jobId );
+        scheduler.removeJob( jobId );
+        if ( job != null && job.fail( cause ) )
+        {
+            if ( journal != null )
+            {
+                journal.failed( jobId );
+            }
+            forgetShared( jobId );
+        }
+    }
     
-    private void reportTimeMeasures( final Return result )
+    private void writeTrace( final Job job )
     {
-        Logger.getLogger( getClass().getCanonicalName() )
-              .log( Level.INFO, 
-                    "\n\tTotal tasks: {0} \n\tT_1: {1}ms.\n\tT_inf: {2}ms.\n\tT_1 / T_inf: {3}", 
-                    new Object[]{ numTasks, result.t1() / 1000000, result.tInf() / 1000000, result.t1() / result.tInf() } );
+        try 
+        { 
+            Logger.getLogger( getClass().getName() )
+                  .log( Level.INFO, "Trace of job {0}: {1}", new Object[]{ String.valueOf( job.id() ), job.trace().write() } );
+        }
+        catch ( IOException exception ) 
+        {
+            Logger.getLogger( getClass().getName() )
+                  .log( Level.WARNING, "Trace of job " + job.id() + " not written.", exception );
+        }
     }
     
-    private class ComputerProxy
+    /**
+     * @return OVER_BUDGET from when the ready and waiting tasks exceed the task 
+     * budget until they drain below the low-water mark; otherwise, HUNGRY if 
+     * some registered computer is idle, else SATURATED.
+     */
+    SpaceLoad spaceLoad() 
+    { 
+        final int numTasks = scheduler.size() + waitingTaskMap.size();
+        if ( numTasks > TASK_BUDGET && isOverBudget.compareAndSet( false, true ) )
+        {
+            Logger.getLogger( getClass().getName() )
+                  .log( Level.INFO, "Space: {0} tasks: over budget; decomposition suspended.", numTasks );
+        }
+        else if ( numTasks < LOW_WATER_MARK && isOverBudget.compareAndSet( true, false ) )
+        {
+            Logger.getLogger( getClass().getName() )
+                  .log( Level.INFO, "Space: {0} tasks: decomposition resumed.", numTasks );
+        }
+        return isOverBudget.get()           ? SpaceLoad.OVER_BUDGET 
+             : numIdleComputers.get() > 0   ? SpaceLoad.HUNGRY 
+                                            : SpaceLoad.SATURATED; 
+    }
+    
+    /**
+     * @return the cutoff of a recursive task; 0, for other tasks.
+     */
+    static private int cutoff( final Task task ) 
+    { 
+        return task instanceof TaskRecursive ? ( (TaskRecursive<?>) task ).cutoff() : 0; 
+    }
+    
+    /**
+     * The cutoff of recursive tasks is tuned per class of root task, 
+     * across the jobs of that class: a job's tasks are too few to tune it alone.
+     * @param rootTask a job's root task; null, if it is unknown.
+     * @return the granularity of the jobs whose root task is of the same class.
+     */
+    private AdaptiveGranularity granularity( final Task rootTask )
+    {
+        return rootTask == null 
+             ? new AdaptiveGranularity( 0 )
+             : granularities.computeIfAbsent( rootTask.getClass(), rootClass -> new AdaptiveGranularity( cutoff( rootTask ) ) );
+    }
+    
+    /**
+     * Give a recursive task, about to be dispatched, its job's current cutoff.
+     */
+    private void stampCutoff( final Task task )
+    {
+        final Job job = jobs.get( task.jobId() );
+        if ( job != null && task instanceof TaskRecursive )
+        {
+            ( (TaskRecursive<?>) task ).cutoff( job.granularity().get() );
+        }
+    }
+    
+    /**
+     * Tune the cutoff of a task's job with the task's dispatch overhead and, 
+     * if it is a recursive task with a value, the mean run time of the tasks 
+     * that produced it: those of its subtree, if the computer executed it locally.
+     * @param task a task executed by a computer.
+     * @param result the task's return.
+     * @param overhead the dispatch overhead per task of the task's batch, in nanoseconds.
+     */
+    private void measureGranularity( final Task task, final Return result, final long overhead )
+    {
+        final Job job = jobs.get( task.jobId() );
+        if ( job == null )
+        {
+            return;
+        }
+        job.granularity().overhead( overhead );
+        if ( task instanceof TaskRecursive && result instanceof ReturnValue )
+        {
+            final int numTasks = Math.max( 1, result.numTasks() );
+            job.granularity().taskRunTime( cutoff( task ), numTasks, result.t1() / numTasks );
+        }
+    }
+    
+    /**
+     * @param jobId the id of a job.
+     * @return the compose id of the job's root task; NO_JOB, if the job has completed, or failed.
+     */
+    public long rootTaskReturnValue( final long jobId ) 
+    { 
+        final Job job = jobs.get( jobId );
+        return job == null ? NO_JOB : job.rootComposeId(); 
+    }
+    
+    private class ComputerProxy implements ReturnListener
     {
         final private Computer computer;
         final private int computerId = computerIds.getAndIncrement();
         final private Map<Integer, WorkerProxy> workerMap = new HashMap<>();
+        final private Map<Long, Batch> inFlight = new ConcurrentHashMap<>();
+        final private AtomicLong batchIds = new AtomicLong();
+        final private AdaptiveBatchSize batchSize = new AdaptiveBatchSize();
+        final private InFlightWindow window;
+        final private WorkerProxyController controller = new WorkerProxyController();
+        final private AtomicInteger numBatchesInFlight = new AtomicInteger();
+        final private Map<Long, Long> sentSharedVersions = new HashMap<>(); // job id -> version
+        final private Object sharedLock = new Object();
+        private volatile boolean failed;
+        private volatile long lastAcceptTime = System.nanoTime();
+        final private String metricsPrefix = "computer." + computerId + ".";
+        final private Meter tasksExecuted = metrics.meter( metricsPrefix + "tasks" );
+        final private Histogram latencies = metrics.histogram( metricsPrefix + "latency" ); // nanoseconds per remote call, less its computer time
 
-        ComputerProxy( final Computer computer, final int numWorkerProxies )
+        ComputerProxy( final Computer computer, final int numProcessors ) throws RemoteException
         { 
             this.computer = computer;
-            for ( int id = 0; id < numWorkerProxies; id++ )
+            window = new InFlightWindow( numProcessors );
+            metrics.gauge( metricsPrefix + "batchesInFlight", numBatchesInFlight::get );
+            UnicastRemoteObject.exportObject( this, 0 );
+            numIdleComputers.incrementAndGet();
+        }
+        
+        private void startWorkerProxies() { startWorkerProxies( controller.numWorkerProxies() ); }
+        
+        /**
+         * Start worker proxies, until numWorkerProxies are active.
+         */
+        private synchronized void startWorkerProxies( final int numWorkerProxies )
+        {
+            for ( int id = 0; id < numWorkerProxies && ! failed; id++ )
             {
-                WorkerProxy workerProxy = new WorkerProxy( id );
-                workerMap.put( id, workerProxy );
+                if ( ! workerMap.containsKey( id ) )
+                {
+                    final WorkerProxy workerProxy = new WorkerProxy( id );
+                    workerMap.put( id, workerProxy );
+                    workerProxy.start();
+                }
             }
         }
         
-        private void startWorkerProxies()
+        /**
+         * Grow or shrink the number of active worker proxies. A worker proxy 
+         * whose id is not less than the new number stops after its current batch.
+         */
+        private void adjustWorkerProxies()
         {
-            for ( WorkerProxy workerProxy : workerMap.values() )
+            final int numWorkerProxies = numWorkerProxies();
+            final int newNumWorkerProxies = controller.adjust( window.depth() );
+            if ( newNumWorkerProxies != numWorkerProxies )
             {
-                workerProxy.start();
+                Logger.getLogger( getClass().getName() )
+                      .log( Level.FINE, "Computer {0}: {1} worker proxies.", new Object[]{ computerId, newNumWorkerProxies } );
             }
+            startWorkerProxies( newNumWorkerProxies );
         }
         
-        private void unregister( final Task task, final Computer computer, final int workerProxyId )
+        private int numWorkerProxies() { return controller.numWorkerProxies(); }
+        
+        /**
+         * @return true if and only if the worker proxy is to stop: 
+         * its id is not less than the number of active worker proxies.
+         */
+        private synchronized boolean retire( final int workerProxyId )
         {
-            readyTaskQ.add( task );
+            if ( workerProxyId < numWorkerProxies() )
+            {
+                return false;
+            }
             workerMap.remove( workerProxyId );
-            Logger.getLogger( getClass().getName() )
-                  .log( Level.WARNING, "Computer {0}: Worker failed.", workerProxyId );
-            if ( workerMap.isEmpty() )
+            return true;
+        }
+        
+        /**
+         * Accept the returns of a batch: update the batch size, window depth, 
+         * and leases with its measures, and process its results.
+         * Returns of a batch that was requeued, because its computer was deemed
+         * failed, are ignored, as are returns of tasks that a speculative 
+         * execution completed first.
+         */
+        @Override
+        public void accept( final long batchId, final List<Return> returns, final long computerTime )
+        {
+            lastAcceptTime = System.nanoTime();
+            final Batch batch = inFlight.remove( batchId );
+            if ( batch == null )
+            {
+                return;
+            }
+            final long elapsedTime = System.nanoTime() - batch.sendTime;
+            long sumTaskRunTime = 0;
+            for ( Return result : returns )
+            {
+                sumTaskRunTime += result.taskRunTime();
+                taskRunTimes.record( result.taskRunTime() );
+            }
+            final long latency = Math.max( 0, elapsedTime - computerTime );
+            latencies.record( latency );
+            tasksExecuted.mark( batch.tasks.size() );
+            batchSize.update( batch.tasks.size(), latency + sumTaskRunTime, sumTaskRunTime );
+            window.update( latency, sumTaskRunTime );
+            leases.update( batch.tasks.size(), elapsedTime );
+            for ( int i = 0; i < batch.tasks.size(); i++ )
+            {
+                final Task task = batch.tasks.get( i );
+                if ( task.markDone() )
+                {
+                    measureGranularity( task, returns.get( i ), latency / batch.tasks.size() );
+                    composeRunTime( task, returns.get( i ).taskRunTime() );
+                    processResult( task, returns.get( i ), computerId );
+                }
+            }
+            idle();
+            window.release();
+        }
+        
+        /**
+         * Send the computer its job's shared object, unless it was sent that version already.
+         * @param jobId the id of the job.
+         * @throws RemoteException 
+         */
+        private void pushShared( final long jobId ) throws RemoteException
+        {
+            final Job job = jobs.get( jobId );
+            if ( job == null )
+            {
+                return;
+            }
+            synchronized ( sharedLock )
+            {
+                final Shared shared = job.shared();
+                if ( shared.version() > sentSharedVersions.getOrDefault( jobId, 0L ) )
+                {
+                    computer.shared( jobId, shared );
+                    sentSharedVersions.put( jobId, shared.version() );
+                }
+            }
+        }
+        
+        /**
+         * Tell the computer to forget a job's shared object, off the calling thread.
+         */
+        private void forgetShared( final long jobId )
+        {
+            synchronized ( sharedLock ) { sentSharedVersions.remove( jobId ); }
+            broadcasts.execute( () -> 
             {
-                computerProxies.remove( computer );
+                try { computer.forget( jobId ); }
+                catch ( RemoteException ignore ) { /* The heartbeat detects failed computers. */ }
+            } );
+        }
+        
+        /**
+         * If batches are in flight, but none has returned in a heartbeat period, 
+         * find out if the computer still is alive.
+         */
+        private void checkAlive()
+        {
+            if ( inFlight.isEmpty() 
+              || System.nanoTime() - lastAcceptTime < TimeUnit.MILLISECONDS.toNanos( HEARTBEAT_PERIOD ) )
+            {
+                return;
+            }
+            try { computer.heartbeat(); }
+            catch ( RemoteException ignore ) { fail(); }
+        }
+        
+        /**
+         * Speculatively re-execute the undone tasks of each overdue batch, 
+         * that was not speculated already, on an idle computer.
+         */
+        private void checkLeases()
+        {
+            final long now = System.nanoTime();
+            for ( Map.Entry<Long, Batch> entry : inFlight.entrySet() )
+            {
+                final Batch batch = entry.getValue();
+                if ( batch.isSpeculated || now - batch.sendTime < leases.duration( batch.tasks.size() ) )
+                {
+                    continue;
+                }
+                final ComputerProxy idleComputerProxy = idleComputerProxy( this );
+                if ( idleComputerProxy == null )
+                {
+                    return;
+                }
+                final List<Task> tasks = new ArrayList<>();
+                for ( Task task : batch.tasks )
+                {
+                    if ( ! task.isDone() )
+                    {
+                        tasks.add( task );
+                    }
+                }
+                batch.isSpeculated = true;
+                scheduler.putAll( idleComputerProxy.computerId, tasks );
                 Logger.getLogger( getClass().getName() )
-                      .log( Level.WARNING, "Computer {0} failed.", computerId );
+                      .log( Level.FINE, "Computer {0}: batch {1} overdue; {2} tasks speculated on computer {3}.", 
+                            new Object[]{ computerId, entry.getKey(), tasks.size(), idleComputerProxy.computerId } );
+            }
+        }
+        
+        private boolean isIdle() { return ! failed && numBatchesInFlight.get() == 0; }
+        
+        /**
+         * The computer failed: requeue its batches in flight, stop its worker proxies,
+         * and unregister it.
+         */
+        private synchronized void fail()
+        {
+            requeueInFlight();
+            if ( failed )
+            {
+                return;
+            }
+            failed = true;
+            computerProxies.remove( computer );
+            for ( WorkerProxy workerProxy : workerMap.values() )
+            {
+                workerProxy.interrupt();
+            }
+            scheduler.unregister( computerId );
+            numIdleComputers.decrementAndGet();
+            metrics.remove( metricsPrefix );
+            try { UnicastRemoteObject.unexportObject( this, true ); }
+            catch ( NoSuchObjectException ignore ) {}
+            Logger.getLogger( getClass().getName() )
+                  .log( Level.WARNING, "Computer {0} failed.", computerId );
+        }
+        
+        private void requeueInFlight()
+        {
+            for ( Long batchId : inFlight.keySet() )
+            {
+                final Batch batch = inFlight.remove( batchId );
+                if ( batch != null )
+                {
+                    scheduler.putAll( Scheduler.SPACE, batch.tasks );
+                    idle();
+                    window.release();
+                }
             }
         }
              
+        /**
+         * A batch is about to be sent to the computer: 
+         * if no other batch is in flight, the computer no longer is idle.
+         */
+        private void busy()
+        {
+            if ( numBatchesInFlight.getAndIncrement() == 0 )
+            {
+                numIdleComputers.decrementAndGet();
+            }
+        }
+        
+        /**
+         * A batch has returned from the computer: 
+         * if no other batch is in flight, the computer is idle.
+         */
+        private void idle()
+        {
+            if ( numBatchesInFlight.decrementAndGet() == 0 )
+            {
+                numIdleComputers.incrementAndGet();
+            }
+        }
+        
         private class WorkerProxy extends Thread
         {
             final private Integer id;
             
             private WorkerProxy( final int id ) { this.id = id; }
             
+            /**
+             * Send batches to the computer, as long as its window has room:
+             * batches are returned to the ComputerProxy's accept method.
+             */
             @Override public void run()
             {
-                while ( true )
+                while ( ! failed && ! retire( id ) )
                 {
-                    Task task = null;
                     try 
                     { 
-                        task = readyTaskQ.take();
-                        processResult( task, computer.execute( task, shared ) );
+                        long startTime = System.nanoTime();
+                        window.acquire();
+                        controller.windowWaitTime( System.nanoTime() - startTime );
+                        final List<Task> tasks = new ArrayList<>();
+                        try
+                        {
+                            startTime = System.nanoTime();
+                            tasks.add( scheduler.take( computerId ) );
+                            controller.queueWaitTime( System.nanoTime() - startTime );
+                        }
+                        catch ( InterruptedException ex )
+                        {
+                            window.release();
+                            throw ex;
+                        }
+                        final int size = batchSize.get();
+                        for ( Task task; tasks.size() < size && ( task = scheduler.poll( computerId ) ) != null; )
+                        {
+                            tasks.add( task );
+                        }
+                        tasks.removeIf( Task::isDone ); // completed by another execution
+                        if ( tasks.isEmpty() )
+                        {
+                            window.release();
+                            continue;
+                        }
+                        final long batchId = batchIds.incrementAndGet();
+                        busy();
+                        inFlight.put( batchId, new Batch( tasks ) );
+                        startTime = System.nanoTime();
+                        for ( Task task : tasks )
+                        {
+                            queueWaitTimes.record( startTime - task.readyTime() );
+                            task.dispatchTime( startTime );
+                            pushShared( task.jobId() );
+                            stampCutoff( task );
+                        }
+                        computer.executeAsync( batchId, new CodecList<>( tasks ), spaceLoad(), ComputerProxy.this );
+                        controller.rmiTime( System.nanoTime() - startTime );
+                        dispatchTimes.record( System.nanoTime() - startTime );
+                        if ( failed )
+                        {
+                            requeueInFlight();
+                        }
                     }
                     catch ( RemoteException ignore )
                     {
-                        unregister( task, computer, id );
-                        ignore.printStackTrace();
-                        return;
+                        Logger.getLogger( getClass().getName() )
+                              .log( Level.WARNING, "Computer {0}: Worker {1} failed.", new Object[]{ computerId, id } );
+                        fail();
                     } 
                     catch ( InterruptedException ex ) 
                     { 
-                        Logger.getLogger( getClass().getName() )
-                              .log( Level.INFO, null, ex ); 
+                        if ( ! failed )
+                        {
+                            Logger.getLogger( getClass().getName() )
+                                  .log( Level.INFO, null, ex ); 
+                        }
                     }
                 }
             }   
         }
     }
     
-    private class ListenerProxy extends Thread
+    /**
+     * A batch of tasks in flight to a computer.
+     */
+    static final private class Batch
     {
-        private final RemoteEventListener remoteListener;
+        final private List<Task> tasks;
+        final private long sendTime = System.nanoTime();
+        private boolean isSpeculated; // accessed by the monitor thread only
         
-        private ListenerProxy(final RemoteEventListener remoteListener )
-        {
-            this.remoteListener = remoteListener;
-        }
-        
-        @Override public void run()
-        {
-            while ( true )
-            {
-                try   { remoteListener.accept( eventQ.take() ); } 
-                catch ( InterruptedException | RemoteException ex ) 
-                {
-                    Logger.getLogger( getClass().getName() )
-                          .log( Level.INFO, "Listener accept of event failed", ex );
-                }
-            }
-        }
+        private Batch( final List<Task> tasks ) { this.tasks = tasks; }
     }
 }
@@ -0,0 +1,49 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package system;
+
+/**
+ * The load of the Space, as reported to a Computer with each batch of tasks.
+ * It tells the Computer what to do with the children of a task that decomposes.
+ * @author Peter Cappello
+ */
+public enum SpaceLoad 
+{
+    /**
+     * Some computer is idle: return decompositions to the Space.
+     */
+    HUNGRY,
+    
+    /**
+     * Every computer is busy: execute the children of a decomposition locally, 
+     * unless the local queue is past its high-water mark.
+     */
+    SATURATED,
+    
+    /**
+     * The Space holds more ready and waiting tasks than its budget: 
+     * solve recursive tasks locally and sequentially, instead of decomposing them.
+     */
+    OVER_BUDGET
+}
@@ -22,11 +22,11 @@
  * THE SOFTWARE.
  */
 package system;
+import api.ReturnValue;
 import api.Shared;
 import api.Space;
 import api.TaskCompose;
 import java.io.Serializable;
-import java.util.UUID;
 import java.util.concurrent.Callable;
 
 /**
@@ -35,39 +35,90 @@ import java.util.concurrent.Callable;
  */
 abstract public class Task implements Serializable, Callable<Return> 
 { 
-    private UUID id;
-    private UUID composeId;
+    private long jobId;
+    private long id;
+    private long composeId;
     private int composeArgNum;
-    private final Boolean sharedLock = true;
-    private Shared shared;
-    protected Space space;
+    transient private Shared shared; // a computer has its job's, sent once per version
+    transient protected Space space;
+    transient private boolean isDone;
+    transient private long readyTime;    // when it was last put in the Space's ready queue
+    transient private long dispatchTime; // when the Space last dispatched it
+    transient private long returnTime;   // when the Space received its return
     
     @Override
     abstract public Return call(); 
         
-    public UUID  id() { return id; }
-    public void id( final UUID id ) { this.id = id; }
+    public long jobId() { return jobId; }
+    public void jobId( final long jobId ) { this.jobId = jobId; }
+    
+    public long id() { return id; }
+    public void id( final long id ) { this.id = id; }
     
     public int  composeArgNum() { return composeArgNum; }
     public void composeArgNum( final int composeArgNum ) { this.composeArgNum = composeArgNum; }
     
-    public UUID  composeId() { return composeId; }
-    public void composeId( final UUID composeId ) { this.composeId = composeId; }
+    public long composeId() { return composeId; }
+    public void composeId( final long composeId ) { this.composeId = composeId; }
         
-    public Shared shared() { return shared; }
-    public Task   shared( final Shared shared ) 
+    public synchronized Shared shared() { return shared; }
+    public synchronized Task shared( final Shared shared ) 
     { 
         this.shared = newerShared( shared ); 
         return this;
     }
     
+    @SuppressWarnings( "unchecked" ) // a job's shared objects are of one class
     private Shared newerShared( final Shared that )
     {
-        synchronized( sharedLock )
+        return that != null && ( this.shared == null || this.shared.isOlderThan( that ) ) ? that : this.shared;
+    }
+    
+    /**
+     * A task may be executed more than once, e.g., speculatively: 
+     * only the first of its results is processed.
+     * @return true if and only if the task was not done already.
+     */
+    public synchronized boolean markDone()
+    {
+        if ( isDone )
         {
-            return this.shared == null || this.shared.isOlderThan( that ) ? that : this.shared;
+            return false;
         }
+        return isDone = true;
     }
     
+    public synchronized boolean isDone() { return isDone; }
+    
+    long readyTime() { return readyTime; }
+    void readyTime( final long readyTime ) { this.readyTime = readyTime; }
+    
+    long dispatchTime() { return dispatchTime; }
+    void dispatchTime( final long dispatchTime ) { this.dispatchTime = dispatchTime; }
+    
+    long returnTime() { return returnTime; }
+    void returnTime( final long returnTime ) { this.returnTime = returnTime; }
+    
+    /**
+     * @return the key by which a best-first scheduling policy orders this task: least first.
+     */
+    public double priority() { return 0; }
+    
+    /**
+     * Branch-and-bound: a lower bound on the cost of this task's solutions.
+     * When a shared object's bound is no greater, this task is pruned.
+     * @return the bound; Double.NEGATIVE_INFINITY, if this task is not pruned.
+     */
+    public double bound() { return Double.NEGATIVE_INFINITY; }
+    
+    /**
+     * Branch-and-bound: the value of this task, when pruned, 
+     * which its compose task receives in place of the value it would have computed.
+     * A task whose bound is finite overrides this.
+     * @param shared the shared object that prunes this task.
+     * @return the value; null, if this task is not to be pruned.
+     */
+    public ReturnValue pruned( final Shared shared ) { return null; }
+    
     public boolean isSpaceCallable() { return this instanceof TaskCompose; }
 }
@@ -0,0 +1,199 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package system;
+
+import api.ReturnDecomposition;
+import api.TaskCompose;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The execution trace of a job: for each of its tasks, when it was ready, 
+ * dispatched, run, and returned, by which computer, and its compose task.
+ * Tracing is enabled by the system property space.traceDir: the directory 
+ * into which the Space writes the trace of each job, as it completes, 
+ * as job-ID.json, in the Chrome trace event format (chrome://tracing, Perfetto).
+ * <p>
+ * Times are of the Space's clock: a computer's clock is not comparable.
+ * A task's run ends when the Space receives its return, and starts its run time 
+ * before that, but not before its dispatch: a task of a batch is shown running
+ * while the batch is in flight. A task pruned in the ready queue runs for no time.
+ * <p>
+ * Each task is an event on a line of its own, whose args are its task id, 
+ * its compose task's id, the id of the compose task of its decomposition, 
+ * if any, and its ready, dispatch, and return times: see TraceAnalyzer.
+ * @author Peter Cappello
+ */
+final class Trace 
+{
+    static final private String DIRECTORY = System.getProperty( "space.traceDir" );
+    static final         String DECOMPOSE = "decompose";
+    static final         String LEAF      = "leaf";
+    static final         String COMPOSE   = "compose";
+    static final         String PRUNED    = "pruned";
+    static final         long   NONE      = -1;
+    
+    final private long jobId;
+    final private long startTime;
+    final private ConcurrentLinkedQueue<Event> events = new ConcurrentLinkedQueue<>();
+    
+    /**
+     * @param jobId the id of the job.
+     * @param startTime the job's start time, in nanoseconds.
+     */
+    Trace( final long jobId, final long startTime )
+    {
+        this.jobId = jobId;
+        this.startTime = startTime;
+    }
+    
+    static boolean isEnabled() { return DIRECTORY != null; }
+    
+    /**
+     * Record a task, whose return the Space has received.
+     * @param task the task.
+     * @param result the task's return; its decomposition's compose task has its id.
+     * @param computerId the id of the computer that executed it; Scheduler.SPACE, if none did.
+     */
+    void add( final Task task, final Return result, final int computerId )
+    {
+        final String kind = task instanceof TaskCompose ? COMPOSE 
+                          : result instanceof ReturnDecomposition ? DECOMPOSE
+                          : result.numTasks() == 0 ? PRUNED : LEAF;
+        final long decomposes = result instanceof ReturnDecomposition ? ( (ReturnDecomposition) result ).compose().id() : NONE;
+        final long returnTime = task.returnTime();
+        final long dispatchTime = kind.equals( PRUNED ) ? returnTime : task.dispatchTime();
+        final long runStartTime = Math.min( returnTime, Math.max( dispatchTime, returnTime - result.taskRunTime() ) );
+        events.add( new Event( task.getClass().getSimpleName(), kind, computerId, task.id(), task.composeId(), decomposes, 
+                               task.readyTime(), dispatchTime, runStartTime, returnTime, result.numTasks() ) );
+    }
+    
+    /**
+     * Write this trace into the trace directory. 
+     * The tasks of a computer are laid out as threads, so that no two overlap.
+     * @return the trace file.
+     * @throws IOException if the file cannot be written.
+     */
+    Path write() throws IOException
+    {
+        final Path file = Paths.get( DIRECTORY, "job-" + jobId + ".json" );
+        Files.createDirectories( file.toAbsolutePath().getParent() );
+        final Map<Integer, List<Event>> computerEvents = new TreeMap<>();
+        for ( Event event : events )
+        {
+            computerEvents.computeIfAbsent( event.computerId, id -> new ArrayList<>() ).add( event );
+        }
+        try ( PrintWriter writer = new PrintWriter( Files.newBufferedWriter( file, StandardCharsets.UTF_8 ) ) )
+        {
+            writer.println( "{\"traceEvents\":[" );
+            String separator = "";
+            for ( Map.Entry<Integer, List<Event>> entry : computerEvents.entrySet() )
+            {
+                final int computerId = entry.getKey();
+                writer.print( separator );
+                writer.print( String.format( "{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":%d,\"args\":{\"name\":\"%s\"}}", 
+                        computerId, computerId == Scheduler.SPACE ? "Space" : "Computer " + computerId ) );
+                separator = ",\n";
+                final List<Event> eventsOfComputer = entry.getValue();
+                eventsOfComputer.sort( Comparator.comparingLong( event -> event.runStartTime ) );
+                final List<Long> laneEndTimes = new ArrayList<>();
+                for ( Event event : eventsOfComputer )
+                {
+                    int lane = 0;
+                    while ( lane < laneEndTimes.size() && laneEndTimes.get( lane ) > event.runStartTime )
+                    {
+                        lane++;
+                    }
+                    if ( lane == laneEndTimes.size() )
+                    {
+                        laneEndTimes.add( event.returnTime );
+                    }
+                    laneEndTimes.set( lane, event.returnTime );
+                    writer.print( separator );
+                    writer.print( json( event, lane ) );
+                }
+            }
+            writer.println( "\n]}" );
+        }
+        return file;
+    }
+    
+    private String json( final Event event, final int lane )
+    {
+        return String.format( Locale.ROOT, 
+                "{\"name\":\"%s\",\"cat\":\"%s\",\"ph\":\"X\",\"pid\":%d,\"tid\":%d,\"ts\":%.3f,\"dur\":%.3f,"
+              + "\"args\":{\"id\":%d,\"compose\":%d,\"decomposes\":%d,\"ready\":%.3f,\"dispatch\":%.3f,\"return\":%.3f,\"tasks\":%d}}", 
+                event.name, event.kind, event.computerId, lane, micros( event.runStartTime ), 
+                ( event.returnTime - event.runStartTime ) / 1e3, event.id, event.composeId, event.decomposes, 
+                micros( event.readyTime ), micros( event.dispatchTime ), micros( event.returnTime ), event.numTasks );
+    }
+    
+    /**
+     * @return microseconds since the job started; 0, for an unset time.
+     */
+    private double micros( final long time ) { return time == 0 ? 0 : ( time - startTime ) / 1e3; }
+    
+    static final private class Event
+    {
+        final private String name;
+        final private String kind;
+        final private int computerId;
+        final private long id;
+        final private long composeId;
+        final private long decomposes;
+        final private long readyTime;
+        final private long dispatchTime;
+        final private long runStartTime;
+        final private long returnTime;
+        final private int numTasks;
+        
+        private Event( final String name, final String kind, final int computerId, final long id, final long composeId, 
+                       final long decomposes, final long readyTime, final long dispatchTime, final long runStartTime, 
+                       final long returnTime, final int numTasks )
+        {
+            this.name = name;
+            this.kind = kind;
+            this.computerId = computerId;
+            this.id = id;
+            this.composeId = composeId;
+            this.decomposes = decomposes;
+            this.readyTime = readyTime;
+            this.dispatchTime = dispatchTime;
+            this.runStartTime = runStartTime;
+            this.returnTime = returnTime;
+            this.numTasks = numTasks;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package system;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Analyze a job's trace, as written by Trace: print its critical path, and 
+ * the idle gaps of each computer.
+ * <p>
+ * The critical path is that of the execution: from the task that returned last, 
+ * step back to the task that enabled it, until the root task. A compose task 
+ * is enabled by the last of its inputs to return; any other task, by the 
+ * decomposition that made it. Each step's wait is the time from its enabling 
+ * return until it started running: queueing, dispatch, and transfer. 
+ * <p>
+ * A computer is idle when none of its tasks is running, from the job's first 
+ * ready task until its last return.
+ * <p>
+ * Usage: java system.TraceAnalyzer TRACE_FILE [MAX_GAPS]
+ * @author Peter Cappello
+ */
+public final class TraceAnalyzer 
+{
+    static final private Pattern FIELD = Pattern.compile( "\"(\\w+)\":(\"[^\"]*\"|-?[0-9.]+)" );
+    static final private int MAX_GAPS = 5; // largest gaps listed per computer
+    
+    final private List<Event> events = new ArrayList<>();
+    final private Map<Long, List<Event>> inputs = new HashMap<>();   // compose id -> the events of its inputs
+    final private Map<Long, Event> decompositions = new HashMap<>(); // compose id -> the event of its decomposition
+    
+    public static void main( final String[] args ) throws IOException
+    {
+        if ( args.length == 0 )
+        {
+            System.err.println( "Usage: java system.TraceAnalyzer TRACE_FILE [MAX_GAPS]" );
+            System.exit( 1 );
+        }
+        final TraceAnalyzer analyzer = new TraceAnalyzer( Files.readAllLines( Paths.get( args[ 0 ] ), StandardCharsets.UTF_8 ) );
+        analyzer.printCriticalPath();
+        analyzer.printIdleGaps( args.length > 1 ? Integer.parseInt( args[ 1 ] ) : MAX_GAPS );
+    }
+    
+    /**
+     * @param lines the lines of a trace file: one event per line.
+     */
+    private TraceAnalyzer( final List<String> lines )
+    {
+        for ( String line : lines )
+        {
+            final Map<String, String> fields = new HashMap<>();
+            for ( Matcher matcher = FIELD.matcher( line ); matcher.find(); )
+            {
+                fields.put( matcher.group( 1 ), matcher.group( 2 ).replace( "\"", "" ) );
+            }
+            if ( ! "X".equals( fields.get( "ph" ) ) )
+            {
+                continue;
+            }
+            final Event event = new Event( fields );
+            events.add( event );
+            inputs.computeIfAbsent( event.composeId, id -> new ArrayList<>() ).add( event );
+            if ( event.decomposes != Trace.NONE )
+            {
+                decompositions.put( event.decomposes, event );
+            }
+        }
+    }
+    
+    /**
+     * @return the critical path, from the root task to the task that returned last.
+     */
+    private List<Event> criticalPath()
+    {
+        final List<Event> path = new ArrayList<>();
+        for ( Event event = events.stream().max( Comparator.comparingDouble( e -> e.returnTime ) ).orElse( null ); 
+              event != null; event = enabler( event ) )
+        {
+            path.add( event );
+        }
+        Collections.reverse( path );
+        return path;
+    }
+    
+    /**
+     * @return the event whose return enabled that of event; null, for the root task.
+     */
+    private Event enabler( final Event event )
+    {
+        if ( event.kind.equals( Trace.COMPOSE ) )
+        {
+            return inputs.getOrDefault( event.id, Collections.emptyList() ).stream()
+                         .max( Comparator.comparingDouble( e -> e.returnTime ) ).orElse( null );
+        }
+        return decompositions.get( event.composeId );
+    }
+    
+    private void printCriticalPath()
+    {
+        final List<Event> path = criticalPath();
+        double sumRunTime = 0;
+        double enabledTime = path.isEmpty() ? 0 : path.get( 0 ).readyTime;
+        System.out.println( String.format( "Critical path: %d tasks", path.size() ) );
+        System.out.println( String.format( "%12s %-10s %-24s %8s %12s %12s", "id", "kind", "task", "computer", "wait ms", "run ms" ) );
+        for ( Event event : path )
+        {
+            final double waitTime = event.runStartTime - enabledTime;
+            System.out.println( String.format( "%12d %-10s %-24s %8s %12.3f %12.3f", event.id, event.kind, event.name, 
+                    computer( event.computerId ), waitTime / 1e3, event.runTime / 1e3 ) );
+            sumRunTime += event.runTime;
+            enabledTime = event.returnTime;
+        }
+        final double length = path.isEmpty() ? 0 : path.get( path.size() - 1 ).returnTime - path.get( 0 ).readyTime;
+        System.out.println( String.format( "Length: %.3f ms: run %.3f ms, wait %.3f ms.%n", 
+                length / 1e3, sumRunTime / 1e3, ( length - sumRunTime ) / 1e3 ) );
+    }
+    
+    /**
+     * @return for each computer, the intervals, in microseconds, when none of its tasks ran.
+     */
+    private Map<Integer, List<double[]>> idleGaps()
+    {
+        final double startTime = events.stream().mapToDouble( event -> event.readyTime ).filter( time -> time > 0 ).min().orElse( 0 );
+        final double endTime = events.stream().mapToDouble( event -> event.returnTime ).max().orElse( 0 );
+        final Map<Integer, List<Event>> computerEvents = new TreeMap<>();
+        for ( Event event : events )
+        {
+            computerEvents.computeIfAbsent( event.computerId, id -> new ArrayList<>() ).add( event );
+        }
+        final Map<Integer, List<double[]>> idleGaps = new TreeMap<>();
+        for ( Map.Entry<Integer, List<Event>> entry : computerEvents.entrySet() )
+        {
+            final List<Event> eventsOfComputer = entry.getValue();
+            eventsOfComputer.sort( Comparator.comparingDouble( event -> event.runStartTime ) );
+            final List<double[]> gaps = new ArrayList<>();
+            double busyUntil = startTime;
+            for ( Event event : eventsOfComputer )
+            {
+                if ( event.runStartTime > busyUntil )
+                {
+                    gaps.add( new double[] { busyUntil, event.runStartTime } );
+                }
+                busyUntil = Math.max( busyUntil, event.returnTime );
+            }
+            if ( endTime > busyUntil )
+            {
+                gaps.add( new double[] { busyUntil, endTime } );
+            }
+            idleGaps.put( entry.getKey(), gaps );
+        }
+        return idleGaps;
+    }
+    
+    private void printIdleGaps( final int maxGaps )
+    {
+        final double startTime = events.stream().mapToDouble( event -> event.readyTime ).filter( time -> time > 0 ).min().orElse( 0 );
+        final double endTime = events.stream().mapToDouble( event -> event.returnTime ).max().orElse( 0 );
+        System.out.println( String.format( "Idle gaps, of %.3f ms:", ( endTime - startTime ) / 1e3 ) );
+        for ( Map.Entry<Integer, List<double[]>> entry : idleGaps().entrySet() )
+        {
+            final List<double[]> gaps = entry.getValue();
+            final double idleTime = gaps.stream().mapToDouble( gap -> gap[ 1 ] - gap[ 0 ] ).sum();
+            System.out.println( String.format( "%-10s %6d gaps, idle %10.3f ms (%5.1f%%)", computer( entry.getKey() ), 
+                    gaps.size(), idleTime / 1e3, 100 * idleTime / Math.max( endTime - startTime, 1e-9 ) ) );
+            gaps.sort( Comparator.comparingDouble( gap -> gap[ 0 ] - gap[ 1 ] ) );
+            for ( double[] gap : gaps.subList( 0, Math.min( maxGaps, gaps.size() ) ) )
+            {
+                System.out.println( String.format( "%10s %10.3f ms, from %10.3f ms to %10.3f ms", 
+                        "", ( gap[ 1 ] - gap[ 0 ] ) / 1e3, gap[ 0 ] / 1e3, gap[ 1 ] / 1e3 ) );
+            }
+        }
+    }
+    
+    private static String computer( final int computerId ) 
+    { 
+        return computerId == Scheduler.SPACE ? "Space" : "Computer " + computerId; 
+    }
+    
+    /**
+     * A task's event: times are in microseconds since the job started.
+     */
+    static final private class Event
+    {
+        final private String name;
+        final private String kind;
+        final private int computerId;
+        final private long id;
+        final private long composeId;
+        final private long decomposes;
+        final private double readyTime;
+        final private double runStartTime;
+        final private double runTime;
+        final private double returnTime;
+        
+        private Event( final Map<String, String> fields )
+        {
+            name = fields.get( "name" );
+            kind = fields.get( "cat" );
+            computerId = Integer.parseInt( fields.get( "pid" ) );
+            id = Long.parseLong( fields.get( "id" ) );
+            composeId = Long.parseLong( fields.get( "compose" ) );
+            decomposes = Long.parseLong( fields.get( "decomposes" ) );
+            readyTime = Double.parseDouble( fields.get( "ready" ) );
+            runStartTime = Double.parseDouble( fields.get( "ts" ) );
+            runTime = Double.parseDouble( fields.get( "dur" ) );
+            returnTime = Double.parseDouble( fields.get( "return" ) );
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package system;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Controls the number of worker proxies that send batches to one computer.
+ * Each worker proxy's time is spent in one of: a remote call sending a batch, 
+ * waiting for room in the computer's in-flight window, waiting for a ready task,
+ * or taking a batch. Every control period:
+ * <ul>
+ * <li>if the worker proxies spent most of their time in remote calls, and little 
+ * waiting for the window or for tasks, they are the bottleneck: add one;</li>
+ * <li>if they spent little time in remote calls, one fewer would do: remove one.</li>
+ * </ul>
+ * The count stays between 1 and the depth of the computer's window:
+ * a worker proxy has at most one batch on the wire.
+ * @author Peter Cappello
+ */
+final class WorkerProxyController 
+{
+    static final private double GROW_UTILIZATION   = 0.75;
+    static final private double SHRINK_UTILIZATION = 0.25;
+    static final private double MAX_WAIT_FRACTION  = 0.1;
+    
+    final private LongAdder rmiTime        = new LongAdder(); // nanoseconds in remote calls
+    final private LongAdder windowWaitTime = new LongAdder(); // nanoseconds waiting for the window
+    final private LongAdder queueWaitTime  = new LongAdder(); // nanoseconds waiting for a ready task
+    private long periodStartTime = System.nanoTime();
+    private int numWorkerProxies = 1;
+    
+    void rmiTime(        final long time ) { rmiTime.add( time ); }
+    void windowWaitTime( final long time ) { windowWaitTime.add( time ); }
+    void queueWaitTime(  final long time ) { queueWaitTime.add( time ); }
+    
+    /**
+     * @return the number of worker proxies that should be active.
+     */
+    synchronized int numWorkerProxies() { return numWorkerProxies; }
+    
+    /**
+     * End a control period: adjust the number of worker proxies with its measures.
+     * @param maxWorkerProxies the maximum number of worker proxies.
+     * @return the number of worker proxies that should be active.
+     */
+    synchronized int adjust( final int maxWorkerProxies )
+    {
+        final long now = System.nanoTime();
+        final double capacity = (double) numWorkerProxies * Math.max( 1, now - periodStartTime );
+        periodStartTime = now;
+        final double utilization = rmiTime.sumThenReset() / capacity;
+        final double waitFraction = ( windowWaitTime.sumThenReset() + queueWaitTime.sumThenReset() ) / capacity;
+        if ( utilization > GROW_UTILIZATION && waitFraction < MAX_WAIT_FRACTION )
+        {
+            numWorkerProxies++;
+        }
+        else if ( utilization < SHRINK_UTILIZATION )
+        {
+            numWorkerProxies--;
+        }
+        numWorkerProxies = Math.max( 1, Math.min( maxWorkerProxies, numWorkerProxies ) );
+        return numWorkerProxies;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package transport;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of direct byte buffers, in power-of-two size classes.
+ * Allocating a direct buffer is expensive, and its memory is freed only when
+ * it is garbage collected, so frames are read into and written from pooled buffers.
+ * A buffer larger than the largest size class is allocated, and not pooled.
+ * @author Peter Cappello
+ */
+final public class BufferPool 
+{
+    static final private int MIN_SHIFT = 12; //  4 KiB
+    static final private int MAX_SHIFT = 24; // 16 MiB
+    static final private int MAX_POOLED_PER_CLASS = 32;
+    static final private BufferPool POOL = new BufferPool();
+    
+    final private Queue<ByteBuffer>[] pools;
+    final private AtomicInteger[] numPooled;
+    
+    @SuppressWarnings( "unchecked" )
+    private BufferPool()
+    {
+        pools = new Queue[ MAX_SHIFT - MIN_SHIFT + 1 ];
+        numPooled = new AtomicInteger[ pools.length ];
+        for ( int i = 0; i < pools.length; i++ )
+        {
+            pools[ i ] = new ConcurrentLinkedQueue<>();
+            numPooled[ i ] = new AtomicInteger();
+        }
+    }
+    
+    /**
+     * @return the pool.
+     */
+    public static BufferPool pool() { return POOL; }
+    
+    /**
+     * Acquire a buffer, cleared.
+     * @param capacity the minimum capacity of the buffer.
+     * @return a buffer whose capacity is the least size class that is at least capacity.
+     */
+    public ByteBuffer acquire( final int capacity )
+    {
+        final int sizeClass = sizeClass( capacity );
+        if ( sizeClass >= pools.length )
+        {
+            return ByteBuffer.allocateDirect( capacity );
+        }
+        final ByteBuffer buffer = pools[ sizeClass ].poll();
+        if ( buffer == null )
+        {
+            return ByteBuffer.allocateDirect( 1 << ( sizeClass + MIN_SHIFT ) );
+        }
+        numPooled[ sizeClass ].decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+    
+    /**
+     * Release a buffer acquired from this pool. 
+     * The buffer must not be used after it is released.
+     * @param buffer the buffer.
+     */
+    public void release( final ByteBuffer buffer )
+    {
+        final int sizeClass = sizeClass( buffer.capacity() );
+        if ( sizeClass < pools.length 
+          && buffer.capacity() == 1 << ( sizeClass + MIN_SHIFT )
+          && numPooled[ sizeClass ].incrementAndGet() <= MAX_POOLED_PER_CLASS )
+        {
+            pools[ sizeClass ].add( buffer );
+        }
+        else if ( sizeClass < pools.length && buffer.capacity() == 1 << ( sizeClass + MIN_SHIFT ) )
+        {
+            numPooled[ sizeClass ].decrementAndGet();
+        }
+    }
+    
+    private static int sizeClass( final int capacity )
+    {
+        final int shift = 32 - Integer.numberOfLeadingZeros( Math.max( 1, capacity - 1 ) );
+        return Math.max( 0, shift - MIN_SHIFT );
+    }
+}
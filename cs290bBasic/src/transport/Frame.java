@@ -0,0 +1,224 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import metrics.Histogram;
+import metrics.Metrics;
+
+/**
+ * A length-framed message: 
+ * the length of the rest of the frame (int), its type (byte), 
+ * its id (long), and its objects, serialized.
+ * The id identifies a batch, or pairs a reply with its request.
+ * Frames are built in, and read from, pooled direct buffers.
+ * @author Peter Cappello
+ */
+final public class Frame 
+{
+    static final public int  HEADER_LENGTH = Integer.BYTES + Byte.BYTES + Long.BYTES;
+    static final public int  LENGTH_LENGTH = Integer.BYTES;
+    static final public int  MAX_LENGTH    = 1 << 28;
+    
+    // Computer -> Space
+    static final public byte REGISTER      = 1; // objects: number of processors
+    static final public byte RETURNS       = 2; // id: batch; objects: computer time, returns
+    static final public byte REPLY         = 3; // id: request; objects: return value, or exception
+    // Space -> Computer
+    static final public byte EXECUTE_ASYNC = 4; // id: batch; objects: space load, tasks
+    static final public byte EXECUTE       = 5; // id: request; objects: task, shared
+    static final public byte HEARTBEAT     = 6; // id: request
+    static final public byte SHARED        = 7; // id: job; objects: shared
+    static final public byte FORGET        = 8; // id: job
+    
+    static final private Histogram FRAME_SIZES = new Metrics( "transport" ).histogram( "frameSize" ); // bytes, encoded
+    
+    final private byte type;
+    final private long id;
+    final private Object[] objects;
+    
+    private Frame( final byte type, final long id, final Object[] objects )
+    {
+        this.type = type;
+        this.id = id;
+        this.objects = objects;
+    }
+    
+    public byte type() { return type; }
+    public long id() { return id; }
+    public Object object( final int index ) { return objects[ index ]; }
+    
+    /**
+     * Encode a frame into a pooled buffer, which the caller releases once it is written.
+     * @param type the type of the frame.
+     * @param id the id of the frame.
+     * @param objects the objects of the frame.
+     * @return a pooled buffer, flipped: ready to be written.
+     * @throws IOException 
+     */
+    public static ByteBuffer encode( final byte type, final long id, final Object... objects ) throws IOException
+    {
+        final BufferOutputStream bytes = new BufferOutputStream();
+        bytes.buffer.position( HEADER_LENGTH );
+        if ( objects.length > 0 )
+        {
+            try ( ObjectOutputStream out = new ObjectOutputStream( bytes ) )
+            {
+                for ( Object object : objects )
+                {
+                    out.writeObject( object );
+                }
+            }
+            catch ( IOException | RuntimeException exception )
+            {
+                BufferPool.pool().release( bytes.buffer );
+                throw exception;
+            }
+        }
+        final ByteBuffer buffer = bytes.buffer;
+        FRAME_SIZES.record( buffer.position() );
+        buffer.putInt( 0, buffer.position() - LENGTH_LENGTH )
+              .put( LENGTH_LENGTH, type )
+              .putLong( LENGTH_LENGTH + Byte.BYTES, id )
+              .flip();
+        return buffer;
+    }
+    
+    /**
+     * Decode a frame.
+     * @param body a buffer holding the frame, after its length: 
+     * its type, its id, then its objects. It is not released.
+     * @param numObjects the number of objects in the frame.
+     * @return the frame.
+     * @throws IOException
+     * @throws ClassNotFoundException 
+     */
+    public static Frame decode( final ByteBuffer body, final int numObjects ) throws IOException, ClassNotFoundException
+    {
+        final byte type = body.get();
+        final long id = body.getLong();
+        final Object[] objects = new Object[ numObjects ];
+        if ( numObjects > 0 )
+        {
+            try ( ObjectInputStream in = new ObjectInputStream( new BufferInputStream( body ) ) )
+            {
+                for ( int i = 0; i < numObjects; i++ )
+                {
+                    objects[ i ] = in.readObject();
+                }
+            }
+        }
+        return new Frame( type, id, objects );
+    }
+    
+    /**
+     * @param type a frame type.
+     * @return the number of objects in a frame of the type.
+     */
+    public static int numObjects( final byte type )
+    {
+        switch ( type )
+        {
+            case REGISTER:      return 1;
+            case REPLY:         return 1;
+            case SHARED:        return 1;
+            case HEARTBEAT:     return 0;
+            case FORGET:        return 0;
+            default:            return 2;
+        }
+    }
+    
+    /**
+     * An output stream into a pooled buffer, which it replaces with a pooled 
+     * buffer twice as large when it fills.
+     */
+    static final private class BufferOutputStream extends OutputStream
+    {
+        private ByteBuffer buffer = BufferPool.pool().acquire( 1 << 12 );
+        
+        private void ensureRemaining( final int length )
+        {
+            if ( buffer.remaining() < length )
+            {
+                final ByteBuffer larger = BufferPool.pool().acquire( 
+                        Math.max( 2 * buffer.capacity(), buffer.position() + length ) );
+                buffer.flip();
+                larger.put( buffer );
+                BufferPool.pool().release( buffer );
+                buffer = larger;
+            }
+        }
+        
+        @Override
+        public void write( final int b ) 
+        {
+            ensureRemaining( 1 );
+            buffer.put( (byte) b );
+        }
+        
+        @Override
+        public void write( final byte[] bytes, final int offset, final int length ) 
+        {
+            ensureRemaining( length );
+            buffer.put( bytes, offset, length );
+        }
+    }
+    
+    /**
+     * An input stream from a buffer.
+     */
+    static final private class BufferInputStream extends InputStream
+    {
+        final private ByteBuffer buffer;
+        
+        private BufferInputStream( final ByteBuffer buffer ) { this.buffer = buffer; }
+        
+        @Override
+        public int read() { return buffer.hasRemaining() ? buffer.get() & 0xFF : -1; }
+        
+        @Override
+        public int read( final byte[] bytes, final int offset, final int length ) 
+        {
+            if ( length == 0 )
+            {
+                return 0;
+            }
+            if ( ! buffer.hasRemaining() )
+            {
+                return -1;
+            }
+            final int n = Math.min( length, buffer.remaining() );
+            buffer.get( bytes, offset, n );
+            return n;
+        }
+        
+        @Override
+        public int available() { return buffer.remaining(); }
+    }
+}
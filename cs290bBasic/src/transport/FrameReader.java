@@ -0,0 +1,103 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package transport;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Reads frames from a channel, blocking or not: 
+ * first a frame's length, then its body, into a pooled buffer.
+ * @author Peter Cappello
+ */
+final class FrameReader 
+{
+    final private ByteBuffer length = ByteBuffer.allocate( Frame.LENGTH_LENGTH );
+    private ByteBuffer body;
+    
+    /**
+     * Read from the channel what it has, up to the end of the current frame.
+     * @param channel the channel.
+     * @return the frame, if it is complete; otherwise, null.
+     * @throws IOException if the channel is at its end, or the frame is malformed.
+     * @throws ClassNotFoundException 
+     */
+    Frame read( final ReadableByteChannel channel ) throws IOException, ClassNotFoundException
+    {
+        if ( body == null )
+        {
+            if ( channel.read( length ) < 0 )
+            {
+                throw new EOFException();
+            }
+            if ( length.hasRemaining() )
+            {
+                return null;
+            }
+            final int bodyLength = length.getInt( 0 );
+            length.clear();
+            if ( bodyLength < Frame.HEADER_LENGTH - Frame.LENGTH_LENGTH || bodyLength > Frame.MAX_LENGTH )
+            {
+                throw new StreamCorruptedException( "Frame length: " + bodyLength );
+            }
+            body = BufferPool.pool().acquire( bodyLength );
+            body.limit( bodyLength );
+        }
+        if ( channel.read( body ) < 0 )
+        {
+            throw new EOFException();
+        }
+        if ( body.hasRemaining() )
+        {
+            return null;
+        }
+        body.flip();
+        try 
+        { 
+            return Frame.decode( body, Frame.numObjects( body.get( 0 ) ) ); 
+        }
+        finally 
+        { 
+            BufferPool.pool().release( body );
+            body = null;
+        }
+    }
+    
+    /**
+     * Read a frame from a blocking channel.
+     * @param channel the channel.
+     * @return the frame.
+     * @throws IOException
+     * @throws ClassNotFoundException 
+     */
+    Frame readFully( final ReadableByteChannel channel ) throws IOException, ClassNotFoundException
+    {
+        Frame frame;
+        while ( ( frame = read( channel ) ) == null ) {}
+        return frame;
+    }
+}
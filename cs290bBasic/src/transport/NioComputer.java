@@ -0,0 +1,253 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package transport;
+
+import api.Shared;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.rmi.ConnectException;
+import java.rmi.RemoteException;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import system.CodecList;
+import system.Computer;
+import system.Return;
+import system.ReturnListener;
+import system.SpaceLoad;
+import system.Task;
+
+/**
+ * The Space's proxy for a Computer connected by NIO: it implements the Computer
+ * contract with frames on the computer's one connection.
+ * Frames are written by the endpoint's selector thread, from a queue.
+ * Once the connection is closed, each method throws a RemoteException, 
+ * as an RMI stub of a failed computer would.
+ * @author Peter Cappello
+ */
+final class NioComputer implements Computer
+{
+    static final private long REPLY_TIMEOUT = 10; // seconds
+    
+    final private SocketChannel channel;
+    final private SelectionKey key;
+    final private Queue<ByteBuffer> outgoing = new ConcurrentLinkedQueue<>();
+    final private Map<Long, ReturnListener> listeners = new ConcurrentHashMap<>();  // batch id -> listener
+    final private Map<Long, CompletableFuture<Object>> replies = new ConcurrentHashMap<>(); // request id -> reply
+    final private AtomicLong requestIds = new AtomicLong();
+    final private Object outgoingLock = new Object(); // a frame is queued only while the connection is open
+    private boolean closed;
+    
+    NioComputer( final SocketChannel channel, final SelectionKey key )
+    {
+        this.channel = channel;
+        this.key = key;
+    }
+    
+    @Override
+    public Return execute( final Task task, final Shared shared ) throws RemoteException 
+    {
+        return (Return) call( Frame.EXECUTE, task, shared );
+    }
+
+    @Override
+    public void executeAsync( final long batchId, final List<Task> tasks, final SpaceLoad spaceLoad, 
+                              final ReturnListener listener ) throws RemoteException 
+    {
+        listeners.put( batchId, listener );
+        send( Frame.EXECUTE_ASYNC, batchId, spaceLoad, tasks instanceof CodecList ? tasks : new CodecList<>( tasks ) );
+    }
+
+    @Override
+    public void heartbeat() throws RemoteException { call( Frame.HEARTBEAT ); }
+    
+    /**
+     * Frames on a connection are ordered, so the computer has the shared object
+     * before any later batch: no reply is needed.
+     */
+    @Override
+    public void shared( final long jobId, final Shared shared ) throws RemoteException 
+    { 
+        send( Frame.SHARED, jobId, shared ); 
+    }
+    
+    @Override
+    public void forget( final long jobId ) throws RemoteException { send( Frame.FORGET, jobId ); }
+    
+    /**
+     * Send a request, and wait for its reply.
+     */
+    private Object call( final byte type, final Object... objects ) throws RemoteException
+    {
+        final long requestId = requestIds.incrementAndGet();
+        final CompletableFuture<Object> reply = new CompletableFuture<>();
+        replies.put( requestId, reply );
+        try
+        {
+            send( type, requestId, objects );
+            return reply.get( REPLY_TIMEOUT, TimeUnit.SECONDS );
+        }
+        catch ( ExecutionException exception )
+        {
+            throw exception.getCause() instanceof RemoteException 
+                  ? (RemoteException) exception.getCause()
+                  : new RemoteException( "Computer failed.", exception.getCause() );
+        }
+        catch ( InterruptedException | TimeoutException exception )
+        {
+            throw new RemoteException( "No reply from computer.", exception );
+        }
+        finally
+        {
+            replies.remove( requestId );
+        }
+    }
+    
+    private void send( final byte type, final long id, final Object... objects ) throws RemoteException
+    {
+        final ByteBuffer frame;
+        try
+        {
+            frame = Frame.encode( type, id, objects );
+        }
+        catch ( IOException exception )
+        {
+            throw new RemoteException( "Frame encoding failed.", exception );
+        }
+        synchronized ( outgoingLock )
+        {
+            if ( closed )
+            {
+                BufferPool.pool().release( frame );
+                throw new ConnectException( "Connection to computer is closed." );
+            }
+            outgoing.add( frame );
+        }
+        try
+        {
+            key.interestOps( SelectionKey.OP_READ | SelectionKey.OP_WRITE );
+        }
+        catch ( CancelledKeyException exception )
+        {
+            throw new ConnectException( "Connection to computer is closed.", exception );
+        }
+        key.selector().wakeup();
+    }
+    
+    /**
+     * Write queued frames, until the channel would block. Invoked by the selector thread.
+     * @throws IOException 
+     */
+    void flush() throws IOException
+    {
+        for ( ByteBuffer buffer; ( buffer = outgoing.peek() ) != null; )
+        {
+            channel.write( buffer );
+            if ( buffer.hasRemaining() )
+            {
+                return;
+            }
+            outgoing.remove();
+            BufferPool.pool().release( buffer );
+        }
+        key.interestOps( SelectionKey.OP_READ );
+        if ( ! outgoing.isEmpty() ) // a frame was queued after the loop ended.
+        {
+            key.interestOps( SelectionKey.OP_READ | SelectionKey.OP_WRITE );
+        }
+    }
+    
+    /**
+     * Receive a frame from the computer. Invoked by the selector thread.
+     * @param frame the frame.
+     */
+    @SuppressWarnings( "unchecked" )
+    void receive( final Frame frame )
+    {
+        switch ( frame.type() )
+        {
+            case Frame.RETURNS:
+                final ReturnListener listener = listeners.remove( frame.id() );
+                if ( listener != null )
+                {
+                    try 
+                    { 
+                        listener.accept( frame.id(), (List<Return>) frame.object( 1 ), (Long) frame.object( 0 ) ); 
+                    }
+                    catch ( RemoteException ignore ) { /* Not a Remote invocation. */ }
+                }
+                break;
+            case Frame.REPLY:
+                final CompletableFuture<Object> reply = replies.get( frame.id() );
+                if ( reply != null )
+                {
+                    final Object value = frame.object( 0 );
+                    if ( value instanceof Throwable )
+                    {
+                        reply.completeExceptionally( (Throwable) value );
+                    }
+                    else
+                    {
+                        reply.complete( value );
+                    }
+                }
+                break;
+            default:
+                Logger.getLogger( getClass().getName() )
+                      .log( Level.WARNING, "Unexpected frame type: {0}", frame.type() );
+        }
+    }
+    
+    /**
+     * The connection is closed: fail the requests waiting for replies, and all later ones.
+     */
+    void close()
+    {
+        synchronized ( outgoingLock )
+        {
+            closed = true;
+            for ( ByteBuffer buffer; ( buffer = outgoing.poll() ) != null; )
+            {
+                BufferPool.pool().release( buffer );
+            }
+        }
+        for ( CompletableFuture<Object> reply : replies.values() )
+        {
+            reply.completeExceptionally( new ConnectException( "Connection to computer closed." ) );
+        }
+        listeners.clear();
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package transport;
+
+import api.Shared;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.rmi.RemoteException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import system.CodecList;
+import system.Computer;
+import system.Return;
+import system.ReturnListener;
+import system.SpaceLoad;
+import system.Task;
+
+/**
+ * The Computer's end of the NIO transport: one blocking connection to the Space.
+ * A reader thread receives the Space's frames, and dispatches them to the Computer;
+ * the Computer's returns are written as frames on the same connection.
+ * @author Peter Cappello
+ */
+final public class NioComputerConnector extends Thread implements ReturnListener
+{
+    final private Computer computer;
+    final private SocketChannel channel;
+    final private FrameReader reader = new FrameReader();
+    final private ExecutorService requests = Executors.newCachedThreadPool( runnable -> 
+    {
+        final Thread thread = new Thread( runnable, "NioRequest" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+    
+    /**
+     * Connect a computer to a Space, and register it.
+     * @param computer the computer.
+     * @param numProcessors the number of processors of the computer.
+     * @param domainName the domain name of the Space.
+     * @param port the port of the Space's NIO endpoint.
+     * @throws IOException 
+     */
+    public NioComputerConnector( final Computer computer, final int numProcessors, final String domainName, final int port ) 
+            throws IOException
+    {
+        super( "NioComputerConnector" );
+        this.computer = computer;
+        channel = SocketChannel.open( new InetSocketAddress( domainName, port ) );
+        channel.socket().setTcpNoDelay( true );
+        write( Frame.encode( Frame.REGISTER, 0, numProcessors ) );
+    }
+    
+    @Override
+    public void run()
+    {
+        try
+        {
+            while ( true )
+            {
+                receive( reader.readFully( channel ) );
+            }
+        }
+        catch ( IOException | ClassNotFoundException exception )
+        {
+            Logger.getLogger( getClass().getName() )
+                  .log( Level.INFO, "Space connection closed: {0}", exception.toString() );
+        }
+        finally
+        {
+            close();
+        }
+    }
+    
+    /**
+     * Close the connection.
+     */
+    public void close()
+    {
+        try { channel.close(); }
+        catch ( IOException ignore ) {}
+    }
+    
+    @SuppressWarnings( "unchecked" )
+    private void receive( final Frame frame ) throws IOException
+    {
+        switch ( frame.type() )
+        {
+            case Frame.EXECUTE_ASYNC:
+                computer.executeAsync( frame.id(), (List<Task>) frame.object( 1 ), (SpaceLoad) frame.object( 0 ), this );
+                break;
+            case Frame.HEARTBEAT:
+                computer.heartbeat();
+                write( Frame.encode( Frame.REPLY, frame.id(), (Object) null ) );
+                break;
+            case Frame.SHARED:
+                computer.shared( frame.id(), (Shared) frame.object( 0 ) );
+                break;
+            case Frame.FORGET:
+                computer.forget( frame.id() );
+                break;
+            case Frame.EXECUTE:
+                requests.execute( () -> reply( frame ) );
+                break;
+            default:
+                Logger.getLogger( getClass().getName() )
+                      .log( Level.WARNING, "Unexpected frame type: {0}", frame.type() );
+        }
+    }
+    
+    private void reply( final Frame frame )
+    {
+        Object value;
+        try
+        {
+            value = computer.execute( (Task) frame.object( 0 ), (Shared) frame.object( 1 ) );
+        }
+        catch ( RemoteException | RuntimeException exception )
+        {
+            value = exception;
+        }
+        try 
+        { 
+            write( Frame.encode( Frame.REPLY, frame.id(), value ) ); 
+        }
+        catch ( IOException exception ) 
+        {
+            close();
+        }
+    }
+    
+    /**
+     * Write the returns of a batch to the Space.
+     * @throws RemoteException if the connection failed.
+     */
+    @Override
+    public void accept( final long batchId, final List<Return> returns, final long computerTime ) throws RemoteException
+    {
+        try
+        {
+            write( Frame.encode( Frame.RETURNS, batchId, computerTime, 
+                                 returns instanceof CodecList ? returns : new CodecList<>( returns ) ) );
+        }
+        catch ( IOException exception )
+        {
+            close();
+            throw new RemoteException( "Space connection failed.", exception );
+        }
+    }
+    
+    private void write( final ByteBuffer buffer ) throws IOException
+    {
+        try
+        {
+            synchronized ( channel )
+            {
+                while ( buffer.hasRemaining() )
+                {
+                    channel.write( buffer );
+                }
+            }
+        }
+        finally
+        {
+            BufferPool.pool().release( buffer );
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package transport;
+
+import api.Space;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The Space's end of the NIO transport. One selector thread accepts computer
+ * connections, reads their frames, and writes the frames queued for them.
+ * A computer registers with a REGISTER frame: its NioComputer proxy is then
+ * registered with the Space, as an RMI stub would be.
+ * @author Peter Cappello
+ */
+final public class NioSpaceEndpoint extends Thread
+{
+    static final public int PORT = Space.PORT + 1;
+    
+    final private Space space;
+    final private Selector selector;
+    final private ServerSocketChannel serverChannel;
+    
+    /**
+     * @param space the Space with which connecting computers register.
+     * @param port the port on which to accept connections; 0, for any free port.
+     * @throws IOException 
+     */
+    public NioSpaceEndpoint( final Space space, final int port ) throws IOException
+    {
+        super( "NioSpaceEndpoint" );
+        setDaemon( true );
+        this.space = space;
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind( new InetSocketAddress( port ) );
+        serverChannel.configureBlocking( false );
+        serverChannel.register( selector, SelectionKey.OP_ACCEPT );
+    }
+    
+    /**
+     * @return the port on which this endpoint accepts connections.
+     * @throws IOException 
+     */
+    public int port() throws IOException { return ( (InetSocketAddress) serverChannel.getLocalAddress() ).getPort(); }
+    
+    @Override
+    public void run()
+    {
+        while ( selector.isOpen() )
+        {
+            try
+            {
+                selector.select();
+                for ( Iterator<SelectionKey> keys = selector.selectedKeys().iterator(); keys.hasNext(); )
+                {
+                    final SelectionKey key = keys.next();
+                    keys.remove();
+                    if ( key.isValid() && key.isAcceptable() )
+                    {
+                        accept();
+                    }
+                    else if ( key.isValid() )
+                    {
+                        service( key );
+                    }
+                }
+            }
+            catch ( ClosedSelectorException exception )
+            {
+                return;
+            }
+            catch ( IOException exception )
+            {
+                Logger.getLogger( getClass().getName() )
+                      .log( Level.WARNING, null, exception );
+            }
+        }
+    }
+    
+    /**
+     * Close this endpoint, and its connections.
+     * @throws IOException 
+     */
+    public void close() throws IOException
+    {
+        for ( SelectionKey key : selector.keys() )
+        {
+            if ( key.attachment() != null )
+            {
+                close( key );
+            }
+        }
+        selector.close();
+        serverChannel.close();
+    }
+    
+    private void accept() throws IOException
+    {
+        final SocketChannel channel = serverChannel.accept();
+        if ( channel == null )
+        {
+            return;
+        }
+        channel.configureBlocking( false );
+        channel.socket().setTcpNoDelay( true );
+        final SelectionKey key = channel.register( selector, SelectionKey.OP_READ );
+        key.attach( new Connection( channel, key ) );
+    }
+    
+    private void service( final SelectionKey key )
+    {
+        final Connection connection = (Connection) key.attachment();
+        try
+        {
+            if ( key.isReadable() )
+            {
+                for ( Frame frame; ( frame = connection.reader.read( connection.channel ) ) != null; )
+                {
+                    receive( connection, frame );
+                }
+            }
+            if ( key.isValid() && key.isWritable() )
+            {
+                connection.computer.flush();
+            }
+        }
+        catch ( IOException | ClassNotFoundException exception )
+        {
+            Logger.getLogger( getClass().getName() )
+                  .log( Level.INFO, "Computer connection closed: {0}", exception.toString() );
+            close( key );
+        }
+    }
+    
+    private void receive( final Connection connection, final Frame frame ) throws IOException
+    {
+        if ( frame.type() == Frame.REGISTER )
+        {
+            space.register( connection.computer, (Integer) frame.object( 0 ) );
+        }
+        else
+        {
+            connection.computer.receive( frame );
+        }
+    }
+    
+    private void close( final SelectionKey key )
+    {
+        final Connection connection = (Connection) key.attachment();
+        key.cancel();
+        connection.computer.close();
+        try { connection.channel.close(); }
+        catch ( IOException ignore ) {}
+    }
+    
+    static final private class Connection
+    {
+        final private SocketChannel channel;
+        final private FrameReader reader = new FrameReader();
+        final private NioComputer computer;
+        
+        private Connection( final SocketChannel channel, final SelectionKey key )
+        {
+            this.channel = channel;
+            computer = new NioComputer( channel, key );
+        }
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Peter Cappello.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package util;
+
+import java.util.Arrays;
+
+/**
+ * A concurrent map from positive long keys to values.
+ * The map is lock-striped: each key hashes to one of a fixed number of segments, 
+ * each of which is an open-addressing (linear probing) table of primitive 
+ * long keys, guarded by its own monitor. 
+ * Thus, a put, get, or remove allocates nothing, except when a segment grows.
+ * @author Peter Cappello
+ * @param <V> the type of the values.
+ */
+public final class ConcurrentLongHashMap<V> 
+{
+    static final private long EMPTY = 0;
+    static final private long REMOVED = -1;
+    static final private int  NUM_SEGMENTS = 64; // a power of 2
+    static final private int  INITIAL_SEGMENT_CAPACITY = 16; // a power of 2
+    
+    final private Segment[] segments = new Segment[ NUM_SEGMENTS ];
+    
+    public ConcurrentLongHashMap()
+    {
+        for ( int i = 0; i < segments.length; i++ )
+        {
+            segments[ i ] = new Segment();
+        }
+    }
+    
+    /**
+     * @param key a positive long.
+     * @return the value associated with key, or null if there is none.
+     */
+    @SuppressWarnings( "unchecked" )
+    public V get( final long key ) 
+    { 
+        final long hash = hash( key );
+        return (V) segment( hash ).get( key, hash ); 
+    }
+    
+    /**
+     * Associate a value with a key.
+     * @param key a positive long.
+     * @param value not null.
+     * @return the value previously associated with key, or null if there was none.
+     */
+    @SuppressWarnings( "unchecked" )
+    public V put( final long key, final V value ) 
+    { 
+        assert key > 0 && value != null : key;
+        final long hash = hash( key );
+        return (V) segment( hash ).put( key, hash, value ); 
+    }
+    
+    /**
+     * Remove the association of a key, if any.
+     * @param key a positive long.
+     * @return the value that was associated with key, or null if there was none.
+     */
+    @SuppressWarnings( "unchecked" )
+    public V remove( final long key ) 
+    { 
+        final long hash = hash( key );
+        return (V) segment( hash ).remove( key, hash ); 
+    }
+    
+    /**
+     * @return the number of associations; not a snapshot when the map is being modified.
+     */
+    public int size()
+    {
+        int size = 0;
+        for ( Segment segment : segments )
+        {
+            size += segment.size();
+        }
+        return size;
+    }
+    
+    public boolean isEmpty() { return size() == 0; }
+    
+    public void clear()
+    {
+        for ( Segment segment : segments )
+        {
+            segment.clear();
+        }
+    }
+    
+    private Segment segment( final long hash ) { return segments[ (int) ( hash >>> 58 ) & ( NUM_SEGMENTS - 1 ) ]; }
+    
+    /**
+     * Spread sequential keys over the table: the MurmurHash3 64-bit finalizer.
+     */
+    static private long hash( long key )
+    {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+    
+    static final private class Segment
+    {
+        private long[]   keys   = new long[ INITIAL_SEGMENT_CAPACITY ];
+        private Object[] values = new Object[ INITIAL_SEGMENT_CAPACITY ];
+        private int size;
+        private int numRemoved;
+        
+        synchronized private Object get( final long key, final long hash )
+        {
+            final int index = find( key, hash );
+            return index < 0 ? null : values[ index ];
+        }
+        
+        synchronized private Object put( final long key, final long hash, final Object value )
+        {
+            final int index = find( key, hash );
+            if ( index >= 0 )
+            {
+                final Object oldValue = values[ index ];
+                values[ index ] = value;
+                return oldValue;
+            }
+            if ( 4 * ( size + numRemoved + 1 ) > 3 * keys.length )
+            {
+                resize( 4 * ( size + 1 ) > keys.length ? 2 * keys.length : keys.length );
+            }
+            final int mask = keys.length - 1;
+            int i = (int) hash & mask;
+            while ( keys[ i ] != EMPTY && keys[ i ] != REMOVED )
+            {
+                i = ( i + 1 ) & mask;
+            }
+            if ( keys[ i ] == REMOVED )
+            {
+                numRemoved--;
+            }
+            keys[ i ] = key;
+            values[ i ] = value;
+            size++;
+            return null;
+        }
+        
+        synchronized private Object remove( final long key, final long hash )
+        {
+            final int index = find( key, hash );
+            if ( index < 0 )
+            {
+                return null;
+            }
+            final Object oldValue = values[ index ];
+            keys[ index ] = REMOVED;
+            values[ index ] = null;
+            size--;
+            numRemoved++;
+            return oldValue;
+        }
+        
+        synchronized private int size() { return size; }
+        
+        synchronized private void clear()
+        {
+            Arrays.fill( keys, EMPTY );
+            Arrays.fill( values, null );
+            size = 0;
+            numRemoved = 0;
+        }
+        
+        /**
+         * @return the index of key, or -1 if key is absent.
+         */
+        private int find( final long key, final long hash )
+        {
+            final int mask = keys.length - 1;
+            for ( int i = (int) hash & mask; keys[ i ] != EMPTY; i = ( i + 1 ) & mask )
+            {
+                if ( keys[ i ] == key )
+                {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        
+        /**
+         * Rehash into a table of the given capacity, discarding removed keys.
+         */
+        private void resize( final int capacity )
+        {
+            final long[]   oldKeys   = keys;
+            final Object[] oldValues = values;
+            keys   = new long[ capacity ];
+            values = new Object[ capacity ];
+            numRemoved = 0;
+            final int mask = capacity - 1;
+            for ( int j = 0; j < oldKeys.length; j++ )
+            {
+                if ( oldKeys[ j ] != EMPTY && oldKeys[ j ] != REMOVED )
+                {
+                    int i = (int) hash( oldKeys[ j ] ) & mask;
+                    while ( keys[ i ] != EMPTY )
+                    {
+                        i = ( i + 1 ) & mask;
+                    }
+                    keys[ i ] = oldKeys[ j ];
+                    values[ i ] = oldValues[ j ];
+                }
+            }
+        }
+    }
+}